@@ -0,0 +1,76 @@
+package com.monkey.miclockview;
+
+/**
+ * 常亮（低功耗）模式下的颜色削减和防烧屏位移
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public final class ClockAmbient {
+
+    /* 常亮模式下的背景色 */
+    public static final int BACKGROUND_COLOR = 0xff000000;
+    /* 常亮模式下的灰度级数 */
+    public static final int GRAY_LEVELS = 8;
+    /* 防烧屏位移的默认最大距离，单位dp */
+    public static final float DEFAULT_BURN_IN_SHIFT_DP = 3;
+
+    private ClockAmbient() {
+    }
+
+    /**
+     * 把颜色削减为不透明的几级灰度
+     * 先按透明度叠在黑色背景上，再按亮度取最近的一级灰度，低色深的常亮屏幕不需要混合
+     *
+     * @param color 原颜色
+     * @return 削减后的颜色
+     */
+    public static int reduceColor(int color) {
+        int a = color >>> 24;
+        int r = (color >> 16) & 0xff;
+        int g = (color >> 8) & 0xff;
+        int b = color & 0xff;
+        int luminance = (r * 299 + g * 587 + b * 114) / 1000 * a / 255;
+        int level = (luminance * (GRAY_LEVELS - 1) + 127) / 255;
+        int v = level * 255 / (GRAY_LEVELS - 1);
+        return 0xff000000 | (v << 16) | (v << 8) | v;
+    }
+
+    /**
+     * 防烧屏的水平位移，每分钟移动1px，在[-maxShift, maxShift]之间来回
+     *
+     * @param minute   从某个固定时刻起的分钟数
+     * @param maxShift 最大位移，单位px，小于等于0表示不位移
+     * @return 水平位移，单位px
+     */
+    public static int burnInOffsetX(long minute, int maxShift) {
+        if (maxShift <= 0) {
+            return 0;
+        }
+        return triangle(minute, maxShift);
+    }
+
+    /**
+     * 防烧屏的垂直位移，水平方向每走完一个来回移动1px，与水平位移一起覆盖整个方块
+     *
+     * @param minute   从某个固定时刻起的分钟数
+     * @param maxShift 最大位移，单位px，小于等于0表示不位移
+     * @return 垂直位移，单位px
+     */
+    public static int burnInOffsetY(long minute, int maxShift) {
+        if (maxShift <= 0) {
+            return 0;
+        }
+        long period = 4L * maxShift;
+        //负数向下取整，保证跨过0时也连续
+        long sweep = minute >= 0 ? minute / period : (minute + 1) / period - 1;
+        return triangle(sweep, maxShift);
+    }
+
+    /**
+     * 周期为4*max的三角波，从-max走到max再走回来
+     */
+    private static int triangle(long n, int max) {
+        long period = 4L * max;
+        int p = (int) (((n % period) + period) % period);
+        return p <= 2 * max ? p - max : 3 * max - p;
+    }
+}
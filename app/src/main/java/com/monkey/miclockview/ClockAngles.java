@@ -0,0 +1,70 @@
+package com.monkey.miclockview;
+
+/**
+ * 时分秒针角度的计算，复用同一个实例，每帧计算不分配对象
+ */
+public final class ClockAngles {
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_HALF_DAY = 12 * MILLIS_PER_HOUR;
+
+    /* 时针角度 */
+    private float mHourDegree;
+    /* 分针角度 */
+    private float mMinuteDegree;
+    /* 秒针角度 */
+    private float mSecondDegree;
+
+    /**
+     * 根据本地时间计算时分秒针的角度，十二点钟方向为0度，顺时针增加
+     *
+     * @param localTimeMillis 本地时间毫秒数，见 {@link TimeSource#localTimeMillis()}
+     * @param tickMode        走时模式，跳秒模式舍去毫秒，分钟模式舍去秒
+     */
+    public void set(long localTimeMillis, int tickMode) {
+        long millis = localTimeMillis % MILLIS_PER_HALF_DAY;
+        if (millis < 0) {
+            millis += MILLIS_PER_HALF_DAY;
+        }
+        if (tickMode == FrameScheduler.MODE_STEPPED) {
+            millis -= millis % MILLIS_PER_SECOND;
+        } else if (tickMode == FrameScheduler.MODE_MINUTE) {
+            millis -= millis % MILLIS_PER_MINUTE;
+        }
+        mSecondDegree = (float) (millis % MILLIS_PER_MINUTE) / MILLIS_PER_MINUTE * 360;
+        mMinuteDegree = (float) (millis % MILLIS_PER_HOUR) / MILLIS_PER_HOUR * 360;
+        mHourDegree = (float) millis / MILLIS_PER_HALF_DAY * 360;
+    }
+
+    /**
+     * 复制另一组角度
+     */
+    public void set(ClockAngles other) {
+        mHourDegree = other.mHourDegree;
+        mMinuteDegree = other.mMinuteDegree;
+        mSecondDegree = other.mSecondDegree;
+    }
+
+    /**
+     * @return 与另一组角度是否完全相同，相同则不需要重绘
+     */
+    public boolean sameAs(ClockAngles other) {
+        return mHourDegree == other.mHourDegree
+                && mMinuteDegree == other.mMinuteDegree
+                && mSecondDegree == other.mSecondDegree;
+    }
+
+    public float getHourDegree() {
+        return mHourDegree;
+    }
+
+    public float getMinuteDegree() {
+        return mMinuteDegree;
+    }
+
+    public float getSecondDegree() {
+        return mSecondDegree;
+    }
+}
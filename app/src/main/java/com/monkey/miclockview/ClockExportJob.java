@@ -0,0 +1,229 @@
+package com.monkey.miclockview;
+
+import java.io.File;
+
+/**
+ * 离线导出的一个任务：一种主题和尺寸，按合成的时间和倾斜时间线渲染若干帧
+ * 任务只描述参数，渲染引擎和图片由 {@link ClockFrameExporter} 在工作线程中创建
+ */
+public final class ClockExportJob {
+
+    /* 每帧一张PNG */
+    public static final int FORMAT_PNG = 0;
+    /* 每帧一张WebP，Android 10起为无损 */
+    public static final int FORMAT_WEBP = 1;
+    /* 一个GIF动画文件 */
+    public static final int FORMAT_GIF = 2;
+
+    /**
+     * 倾斜的时间线，按帧序号设置倾斜状态
+     * 同一个实例可能被多个任务在不同线程同时使用，实现需要只依赖帧序号
+     */
+    public interface TiltTimeline {
+        /**
+         * @param frame 帧序号，从0开始
+         * @param tilt  要设置的倾斜状态，半径已经设置好
+         */
+        void apply(int frame, ClockTilt tilt);
+    }
+
+    /* 不倾斜 */
+    public static final TiltTimeline NO_TILT = new TiltTimeline() {
+        @Override
+        public void apply(int frame, ClockTilt tilt) {
+            tilt.setPercent(0, 0);
+        }
+    };
+
+    private final File mOutput;
+    private final int mFormat;
+    private final int mWidth;
+    private final int mHeight;
+    /* 默认颜色与MiClockView的默认属性相同 */
+    private int mLightColor = 0xffffffff;
+    private int mDarkColor = 0x80ffffff;
+    private int mBackgroundColor = 0xff237ead;
+    private float mTextSize = 42;
+    private ClockSkin mSkin = ClockSkin.CLASSIC;
+    private ClockNumerals mNumerals = ClockNumerals.CLASSIC;
+    private int mTickMode = FrameScheduler.MODE_SMOOTH;
+    private long mStartTimeMillis;
+    private int mFrameIntervalMillis = 40;
+    private int mFrameCount = 25;
+    private TiltTimeline mTiltTimeline = NO_TILT;
+
+    /**
+     * @param output 输出位置，图片序列为目录，GIF为文件
+     * @param format {@link #FORMAT_PNG}、{@link #FORMAT_WEBP} 或 {@link #FORMAT_GIF}
+     * @param width  宽度，单位px
+     * @param height 高度，单位px
+     */
+    public ClockExportJob(File output, int format, int width, int height) {
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+        if (format != FORMAT_PNG && format != FORMAT_WEBP && format != FORMAT_GIF) {
+            throw new IllegalArgumentException("unknown format: " + format);
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("invalid size: " + width + "x" + height);
+        }
+        mOutput = output;
+        mFormat = format;
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * 设置主题颜色，含义与 {@link ClockRenderer} 相同
+     */
+    public void setColors(int lightColor, int darkColor, int backgroundColor) {
+        mLightColor = lightColor;
+        mDarkColor = darkColor;
+        mBackgroundColor = backgroundColor;
+    }
+
+    /**
+     * @param textSize 小时文本字体大小，单位px
+     */
+    public void setTextSize(float textSize) {
+        mTextSize = textSize;
+    }
+
+    /**
+     * 设置皮肤，只取指针轮廓、比例和刻度线数量，颜色仍由 {@link #setColors(int, int, int)} 决定
+     *
+     * @param skin 皮肤，为null时使用 {@link ClockSkin#CLASSIC}
+     */
+    public void setSkin(ClockSkin skin) {
+        mSkin = skin != null ? skin : ClockSkin.CLASSIC;
+    }
+
+    /**
+     * @param numerals 表盘上各小时位置的文本，为null时使用 {@link ClockNumerals#CLASSIC}
+     */
+    public void setNumerals(ClockNumerals numerals) {
+        mNumerals = numerals != null ? numerals : ClockNumerals.CLASSIC;
+    }
+
+    /**
+     * @param tickMode 走时模式，见 {@link FrameScheduler#MODE_SMOOTH}
+     */
+    public void setTickMode(int tickMode) {
+        mTickMode = tickMode;
+    }
+
+    /**
+     * 设置合成的时间线，第i帧的本地时间为 startTimeMillis + i * frameIntervalMillis
+     *
+     * @param startTimeMillis     第一帧的本地时间毫秒数
+     * @param frameIntervalMillis 帧间隔，也是GIF每帧显示的时间
+     * @param frameCount          帧数
+     */
+    public void setTimeline(long startTimeMillis, int frameIntervalMillis, int frameCount) {
+        if (frameIntervalMillis <= 0 || frameCount <= 0) {
+            throw new IllegalArgumentException("frameIntervalMillis and frameCount must be > 0");
+        }
+        mStartTimeMillis = startTimeMillis;
+        mFrameIntervalMillis = frameIntervalMillis;
+        mFrameCount = frameCount;
+    }
+
+    /**
+     * @param timeline 倾斜的时间线，为null时不倾斜
+     */
+    public void setTiltTimeline(TiltTimeline timeline) {
+        mTiltTimeline = timeline != null ? timeline : NO_TILT;
+    }
+
+    /**
+     * 拖到某个位置再松手回弹的时间线，与触摸时的效果相同，可以被多个任务共用
+     *
+     * @param percentX            拖到的水平位置，与半径之比
+     * @param percentY            拖到的垂直位置，与半径之比
+     * @param dragFrames          拖动用的帧数，之后松手
+     * @param frameIntervalMillis 帧间隔，用于推进弹簧
+     * @return 时间线
+     */
+    public static TiltTimeline swipeAndRelease(final float percentX, final float percentY,
+                                               final int dragFrames, final int frameIntervalMillis) {
+        return new TiltTimeline() {
+            @Override
+            public void apply(int frame, ClockTilt tilt) {
+                if (frame < dragFrames) {
+                    float fraction = (float) (frame + 1) / dragFrames;
+                    tilt.setPercent(percentX * fraction, percentY * fraction);
+                    return;
+                }
+                //每帧从松手时重新推进，只依赖帧序号，离线渲染不在意这点开销
+                ClockSpring spring = new ClockSpring();
+                spring.start(percentX, percentY, 0, 0);
+                long frameNanos = frameIntervalMillis * 1000000L;
+                for (int i = dragFrames; i < frame && spring.isRunning(); i++) {
+                    spring.advance(frameNanos);
+                }
+                tilt.setPercent(spring.getX(), spring.getY());
+            }
+        };
+    }
+
+    public File getOutput() {
+        return mOutput;
+    }
+
+    public int getFormat() {
+        return mFormat;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getLightColor() {
+        return mLightColor;
+    }
+
+    public int getDarkColor() {
+        return mDarkColor;
+    }
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    public float getTextSize() {
+        return mTextSize;
+    }
+
+    public ClockSkin getSkin() {
+        return mSkin;
+    }
+
+    public ClockNumerals getNumerals() {
+        return mNumerals;
+    }
+
+    public int getTickMode() {
+        return mTickMode;
+    }
+
+    public long getStartTimeMillis() {
+        return mStartTimeMillis;
+    }
+
+    public int getFrameIntervalMillis() {
+        return mFrameIntervalMillis;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public TiltTimeline getTiltTimeline() {
+        return mTiltTimeline;
+    }
+}
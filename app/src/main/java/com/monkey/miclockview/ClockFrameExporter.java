@@ -0,0 +1,182 @@
+package com.monkey.miclockview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线批量导出时钟动画，用于生成各种主题和尺寸的预览图、商店截图
+ * 每个任务在一个工作线程中用自己的 {@link ClockRenderer} 渲染，所有帧画在同一张反复使用的Bitmap上，
+ * 画完一帧立即编码写出，内存中不保留之前的帧。不依赖View和窗口，可以在设备上运行，
+ * 也可以在Robolectric的原生图形下于Linux构建机上无界面运行
+ */
+public final class ClockFrameExporter {
+
+    private final int mThreadCount;
+
+    /**
+     * @param threadCount 并行渲染的线程数，小于等于0时使用全部CPU核心
+     */
+    public ClockFrameExporter(int threadCount) {
+        mThreadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 并行导出所有任务，全部完成、工作线程全部退出后才返回，不会有任务还在写文件
+     *
+     * @param jobs 任务
+     * @throws IOException 任一任务写出失败时抛出，其余任务仍会执行完。多个任务失败时抛出第一个，
+     *                     运行时异常和错误也一样等所有任务结束后再抛出，Android 4.4起其余失败附加为suppressed
+     * @throws InterruptedException 等待时被中断，尚未开始的任务不再执行
+     */
+    public void exportAll(List<ClockExportJob> jobs) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(mThreadCount, Math.max(1, jobs.size())));
+        Throwable failure = null;
+        try {
+            List<Future<Void>> futures = new ArrayList<>(jobs.size());
+            for (final ClockExportJob job : jobs) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        export(job);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failure = addFailure(failure, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+
+    /**
+     * 保留第一个失败，addSuppressed需要API 19，更早的系统只保留第一个
+     */
+    private static Throwable addFailure(Throwable first, Throwable next) {
+        if (first == null) {
+            return next;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            first.addSuppressed(next);
+        }
+        return first;
+    }
+
+    /**
+     * 在当前线程导出一个任务
+     *
+     * @param job 任务
+     */
+    public static void export(ClockExportJob job) throws IOException {
+        int width = job.getWidth();
+        int height = job.getHeight();
+        ClockRenderer renderer = new ClockRenderer(job.getLightColor(), job.getDarkColor(),
+                job.getBackgroundColor(), job.getTextSize());
+        renderer.setSkin(job.getSkin());
+        renderer.setNumerals(job.getNumerals());
+        renderer.setSize(width, height, 0, 0, 0, 0);
+        ClockAngles angles = new ClockAngles();
+        ClockTilt tilt = new ClockTilt();
+        tilt.setRadius(renderer.getRadius());
+        ClockExportJob.TiltTimeline timeline = job.getTiltTimeline();
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        int[] pixels = null;
+        GifEncoder gif = null;
+        OutputStream gifOut = null;
+        File output = job.getOutput();
+        try {
+            if (job.getFormat() == ClockExportJob.FORMAT_GIF) {
+                makeParent(output);
+                gifOut = new BufferedOutputStream(new FileOutputStream(output));
+                gif = new GifEncoder(gifOut, width, height, 0);
+                pixels = new int[width * height];
+            } else if (!output.isDirectory() && !output.mkdirs()) {
+                throw new IOException("cannot create " + output);
+            }
+            for (int frame = 0; frame < job.getFrameCount(); frame++) {
+                angles.set(job.getStartTimeMillis() + (long) frame * job.getFrameIntervalMillis(), job.getTickMode());
+                timeline.apply(frame, tilt);
+                canvas.drawColor(job.getBackgroundColor());
+                renderer.draw(canvas, angles, tilt);
+                if (gif != null) {
+                    bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+                    gif.addFrame(pixels, job.getFrameIntervalMillis());
+                } else {
+                    writeImage(bitmap, job.getFormat(), output, frame);
+                }
+            }
+            if (gif != null) {
+                gif.finish();
+            }
+        } finally {
+            if (gifOut != null) {
+                gifOut.close();
+            }
+            renderer.release();
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * 把一帧写成序列中的一张图片，文件名为 frame_0000.png 这样按帧序号排列
+     */
+    private static void writeImage(Bitmap bitmap, int format, File dir, int frame) throws IOException {
+        boolean png = format == ClockExportJob.FORMAT_PNG;
+        File file = new File(dir, String.format(Locale.US, "frame_%04d.%s", frame, png ? "png" : "webp"));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            //Android 10起WebP质量100为无损
+            if (!bitmap.compress(png ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.WEBP, 100, out)) {
+                throw new IOException("cannot encode " + file);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void makeParent(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("cannot create " + parent);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.monkey.miclockview;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 表盘的几何布局，包括所有位置、矩形、线宽和指针路径
+ * 由画布尺寸、padding、小时文本的高度和皮肤唯一确定，尺寸改变时整体重新计算，绘制时只读取
+ * 通过 {@link #obtain(Spec)} 获取，同样参数的时钟共用同一个实例
+ * 创建后不可修改，返回的 RectF 和 Path 调用方不能修改
+ */
+public final class ClockGeometry {
+
+    /* 小时圆圈线条宽度 */
+    public static final float CIRCLE_STROKE_WIDTH = 2;
+
+    /* 最近用过的实例数量上限，超过时丢掉最久没用的 */
+    static final int MAX_RECENT = 8;
+
+    /* 按参数缓存的实例，没有时钟在用时随GC回收 */
+    private static final HashMap<Spec, WeakReference<ClockGeometry>> sInstances = new HashMap<>();
+    /* 最近用过的实例，强引用，切换皮肤再切回来、后台编译好还没取走时不会被回收 */
+    private static final LinkedHashMap<Spec, ClockGeometry> sRecent =
+            new LinkedHashMap<Spec, ClockGeometry>(MAX_RECENT, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Spec, ClockGeometry> eldest) {
+                    return size() > MAX_RECENT;
+                }
+            };
+    /* 后台编译指针路径的线程，第一次用时创建 */
+    private static ExecutorService sCompiler;
+    private static Handler sMainHandler;
+
+    private final Spec mSpec;
+    /* 表盘中心，与原来的 mWidth / 2 一样按整数除法 */
+    private final float mCenterX;
+    private final float mCenterY;
+    /* 时钟半径，不包括padding值 */
+    private final float mRadius;
+    /* 加上默认padding之后的边距，防止camera旋转时超出画布 */
+    private final float mPaddingLeft;
+    private final float mPaddingTop;
+    private final float mPaddingRight;
+    private final float mPaddingBottom;
+    /* 刻度线长度，也是渐变圆弧的线宽 */
+    private final float mScaleLength;
+    /* 刻度线线宽 */
+    private final float mScaleLineWidth;
+    /* 刻度线的起止纵坐标，秒针角度为0时 */
+    private final float mScaleLineStartY;
+    private final float mScaleLineStopY;
+    /* 时针中心圆圈线宽 */
+    private final float mHourHubStrokeWidth;
+    /* 分针中心圆圈线宽 */
+    private final float mMinuteHubStrokeWidth;
+    /* 小时圆圈的外接矩形 */
+    private final RectF mCircleRect;
+    /* 刻度圆弧的外接矩形 */
+    private final RectF mScaleArcRect;
+    /* 时针和分针中心圆圈的外接矩形 */
+    private final RectF mHubRect;
+    /* 缓存渐变圆弧图片的边长 */
+    private final int mScaleRingSpriteSize;
+    private final Path mHourHandPath;
+    private final Path mMinuteHandPath;
+    private final Path mSecondHandPath;
+    /* 最低细节层级用的三角形时针和分针 */
+    private final Path mHourHandSimplePath;
+    private final Path mMinuteHandSimplePath;
+
+    /**
+     * 获取给定参数的几何布局，参数相同时返回同一个实例
+     * 没有缓存时在当前线程构建，构建时不持有锁，其他线程取已有的实例不会被挡住
+     */
+    public static ClockGeometry obtain(Spec spec) {
+        ClockGeometry geometry = peek(spec);
+        if (geometry != null) {
+            return geometry;
+        }
+        geometry = new ClockGeometry(spec);
+        synchronized (sInstances) {
+            //两个线程同时构建时以先放进去的为准
+            ClockGeometry existing = peek(spec);
+            if (existing != null) {
+                return existing;
+            }
+            purge();
+            sInstances.put(spec, new WeakReference<>(geometry));
+            sRecent.put(spec, geometry);
+            return geometry;
+        }
+    }
+
+    /**
+     * @return 缓存中的实例，没有时为null
+     */
+    private static ClockGeometry peek(Spec spec) {
+        synchronized (sInstances) {
+            WeakReference<ClockGeometry> ref = sInstances.get(spec);
+            ClockGeometry geometry = ref != null ? ref.get() : null;
+            if (geometry != null) {
+                sRecent.put(spec, geometry);
+            }
+            return geometry;
+        }
+    }
+
+    /**
+     * 在后台线程构建几何布局，完成后在主线程回调，之后主线程 {@link #obtain(Spec)} 直接取到缓存
+     * 用于运行时切换皮肤，Path的编译不占用绘制的那一帧。已经缓存时立即在当前线程回调
+     *
+     * @param spec    参数
+     * @param onReady 构建完成后在主线程执行
+     */
+    public static void prefetch(final Spec spec, final Runnable onReady) {
+        if (peek(spec) != null) {
+            onReady.run();
+            return;
+        }
+        synchronized (sInstances) {
+            if (sCompiler == null) {
+                sCompiler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ClockGeometry");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                sMainHandler = new Handler(Looper.getMainLooper());
+            }
+        }
+        sCompiler.execute(new Runnable() {
+            @Override
+            public void run() {
+                //放进最近用过的实例中，回调之前不会被回收
+                obtain(spec);
+                sMainHandler.post(onReady);
+            }
+        });
+    }
+
+    /**
+     * 清掉已经被回收的实例
+     */
+    private static void purge() {
+        Iterator<Map.Entry<Spec, WeakReference<ClockGeometry>>> it = sInstances.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().get() == null) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 包内可见，只供基准测试绕过驻留直接构建，其他地方一律用 {@link #obtain(Spec)}
+     */
+    ClockGeometry(Spec spec) {
+        mSpec = spec;
+        int w = spec.width;
+        int h = spec.height;
+        //宽和高分别去掉padding值，取min的一半即表盘的半径
+        float radius = Math.min(w - spec.paddingLeft - spec.paddingRight,
+                h - spec.paddingTop - spec.paddingBottom) / 2;
+        ClockSkin skin = spec.skin;
+        float defaultPadding = skin.getPaddingRatio() * radius;//根据比例确定默认padding大小
+        mRadius = radius;
+        mCenterX = w / 2;
+        mCenterY = h / 2;
+        mPaddingLeft = defaultPadding + w / 2 - radius + spec.paddingLeft;
+        mPaddingTop = defaultPadding + h / 2 - radius + spec.paddingTop;
+        mPaddingRight = mPaddingLeft;
+        mPaddingBottom = mPaddingTop;
+        mScaleLength = skin.getScaleLengthRatio() * radius;//根据比例确定刻度线长度
+        mScaleLineWidth = skin.getScaleLineWidthRatio() * radius;
+        mHourHubStrokeWidth = skin.getHourHubWidthRatio() * radius;
+        mMinuteHubStrokeWidth = skin.getMinuteHubWidthRatio() * radius;
+
+        //小时文本的中心落在小时圆圈上，圆圈向内缩进文本高度的一半
+        int textHeight = spec.textHeight;
+        mCircleRect = new RectF(mPaddingLeft + textHeight / 2 + CIRCLE_STROKE_WIDTH / 2,
+                mPaddingTop + textHeight / 2 + CIRCLE_STROKE_WIDTH / 2,
+                w - mPaddingRight - textHeight / 2 + CIRCLE_STROKE_WIDTH / 2,
+                h - mPaddingBottom - textHeight / 2 + CIRCLE_STROKE_WIDTH / 2);
+
+        mScaleLineStartY = mPaddingTop + mScaleLength + textHeight / 2;
+        mScaleLineStopY = mPaddingTop + 2 * mScaleLength + textHeight / 2;
+        mScaleArcRect = new RectF(mPaddingLeft + 1.5f * mScaleLength + textHeight / 2,
+                mPaddingTop + 1.5f * mScaleLength + textHeight / 2,
+                w - mPaddingRight - textHeight / 2 - 1.5f * mScaleLength,
+                h - mPaddingBottom - textHeight / 2 - 1.5f * mScaleLength);
+        //外径加上线宽的一半，再留1像素的抗锯齿边缘
+        mScaleRingSpriteSize = (int) Math.ceil(mScaleArcRect.width() + mScaleLength) + 2;
+        float hubRadius = skin.getHubRadiusRatio() * radius;
+        mHubRect = new RectF(mCenterX - hubRadius, mCenterY - hubRadius, mCenterX + hubRadius, mCenterY + hubRadius);
+
+        //小时圆圈的顶端，指针长度从这里量起
+        float dialTop = mPaddingTop + textHeight / 2;
+        mSecondHandPath = compile(skin.getSecondHand(), dialTop, radius);
+        mHourHandPath = compile(skin.getHourHand(), dialTop, radius);
+        mMinuteHandPath = compile(skin.getMinuteHand(), dialTop, radius);
+        mHourHandSimplePath = compile(skin.getHourHandSimple(), dialTop, radius);
+        mMinuteHandSimplePath = compile(skin.getMinuteHandSimple(), dialTop, radius);
+    }
+
+    /**
+     * 把皮肤中以半径为单位的指针轮廓换算成这个尺寸下的Path
+     */
+    private Path compile(ClockSkin.Outline outline, float dialTop, float radius) {
+        Path path = new Path();
+        int p = 0;
+        for (byte op : outline.ops) {
+            switch (op) {
+                case ClockSkin.OP_MOVE:
+                    path.moveTo(pointX(outline, p, radius), pointY(outline, p, dialTop, radius));
+                    p++;
+                    break;
+                case ClockSkin.OP_LINE:
+                    path.lineTo(pointX(outline, p, radius), pointY(outline, p, dialTop, radius));
+                    p++;
+                    break;
+                case ClockSkin.OP_QUAD:
+                    path.quadTo(pointX(outline, p, radius), pointY(outline, p, dialTop, radius),
+                            pointX(outline, p + 1, radius), pointY(outline, p + 1, dialTop, radius));
+                    p += 2;
+                    break;
+                default:
+                    path.close();
+                    break;
+            }
+        }
+        return path;
+    }
+
+    private float pointX(ClockSkin.Outline outline, int p, float radius) {
+        return mCenterX + outline.points[p * 2] * radius;
+    }
+
+    private float pointY(ClockSkin.Outline outline, int p, float dialTop, float radius) {
+        float anchor = outline.anchors[p] == ClockSkin.ANCHOR_DIAL ? dialTop : mCenterY;
+        return anchor + outline.points[p * 2 + 1] * radius;
+    }
+
+    public Spec getSpec() {
+        return mSpec;
+    }
+
+    public int getWidth() {
+        return mSpec.width;
+    }
+
+    public int getHeight() {
+        return mSpec.height;
+    }
+
+    public float getCenterX() {
+        return mCenterX;
+    }
+
+    public float getCenterY() {
+        return mCenterY;
+    }
+
+    public float getRadius() {
+        return mRadius;
+    }
+
+    public float getPaddingLeft() {
+        return mPaddingLeft;
+    }
+
+    public float getPaddingTop() {
+        return mPaddingTop;
+    }
+
+    public float getScaleLength() {
+        return mScaleLength;
+    }
+
+    public float getScaleLineWidth() {
+        return mScaleLineWidth;
+    }
+
+    public float getScaleLineStartY() {
+        return mScaleLineStartY;
+    }
+
+    public float getScaleLineStopY() {
+        return mScaleLineStopY;
+    }
+
+    public float getHourHubStrokeWidth() {
+        return mHourHubStrokeWidth;
+    }
+
+    public float getMinuteHubStrokeWidth() {
+        return mMinuteHubStrokeWidth;
+    }
+
+    public RectF getCircleRect() {
+        return mCircleRect;
+    }
+
+    public RectF getScaleArcRect() {
+        return mScaleArcRect;
+    }
+
+    public RectF getHubRect() {
+        return mHubRect;
+    }
+
+    public int getScaleRingSpriteSize() {
+        return mScaleRingSpriteSize;
+    }
+
+    public Path getHourHandPath() {
+        return mHourHandPath;
+    }
+
+    public Path getMinuteHandPath() {
+        return mMinuteHandPath;
+    }
+
+    public Path getSecondHandPath() {
+        return mSecondHandPath;
+    }
+
+    public Path getHourHandSimplePath() {
+        return mHourHandSimplePath;
+    }
+
+    public Path getMinuteHandSimplePath() {
+        return mMinuteHandSimplePath;
+    }
+
+    /**
+     * 决定几何布局的全部参数，可以作为缓存的键
+     */
+    public static final class Spec {
+        final int width;
+        final int height;
+        final int paddingLeft;
+        final int paddingTop;
+        final int paddingRight;
+        final int paddingBottom;
+        /* 小时文本中最高的高度 */
+        final int textHeight;
+        /* 皮肤，按实例区分 */
+        final ClockSkin skin;
+
+        public Spec(int width, int height, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom,
+                    int textHeight) {
+            this(width, height, paddingLeft, paddingTop, paddingRight, paddingBottom, textHeight, ClockSkin.CLASSIC);
+        }
+
+        public Spec(int width, int height, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom,
+                    int textHeight, ClockSkin skin) {
+            if (skin == null) {
+                throw new IllegalArgumentException("skin must not be null");
+            }
+            this.width = width;
+            this.height = height;
+            this.paddingLeft = paddingLeft;
+            this.paddingTop = paddingTop;
+            this.paddingRight = paddingRight;
+            this.paddingBottom = paddingBottom;
+            this.textHeight = textHeight;
+            this.skin = skin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Spec)) {
+                return false;
+            }
+            Spec s = (Spec) o;
+            return width == s.width && height == s.height
+                    && paddingLeft == s.paddingLeft && paddingTop == s.paddingTop
+                    && paddingRight == s.paddingRight && paddingBottom == s.paddingBottom
+                    && textHeight == s.textHeight && skin == s.skin;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + height;
+            result = 31 * result + paddingLeft;
+            result = 31 * result + paddingTop;
+            result = 31 * result + paddingRight;
+            result = 31 * result + paddingBottom;
+            result = 31 * result + textHeight;
+            result = 31 * result + skin.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.monkey.miclockview;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 表盘图层的共享缓存，尺寸、颜色、字体大小都相同的时钟共用同一份静态图层、刻度线和渐变圆弧图片
+ * 按最近最少使用淘汰，只淘汰没有时钟在用的图层，总大小超过预算时才淘汰
+ * 可以在多个线程中使用
+ */
+public class ClockLayerCache {
+
+    private static ClockLayerCache sDefault;
+
+    /* 内存预算，单位字节 */
+    private final long mMaxBytes;
+    /* 当前缓存的总大小 */
+    private long mBytes;
+    /* 按访问顺序排列，最久没用的在最前面 */
+    private final LinkedHashMap<Key, Layers> mMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxBytes 内存预算，单位字节
+     */
+    public ClockLayerCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @return 进程内共用的缓存，预算为最大堆内存的1/8
+     */
+    public static synchronized ClockLayerCache getDefault() {
+        if (sDefault == null) {
+            sDefault = new ClockLayerCache(Runtime.getRuntime().maxMemory() / 8);
+        }
+        return sDefault;
+    }
+
+    /**
+     * 获取一组图层并增加引用，没有时创建空的一组，由调用方填充
+     * 用完后必须调用 {@link #release(Layers)}
+     */
+    public synchronized Layers acquire(Key key) {
+        Layers layers = mMap.get(key);
+        if (layers == null) {
+            layers = new Layers(this);
+            mMap.put(key, layers);
+        }
+        layers.mRefCount++;
+        return layers;
+    }
+
+    /**
+     * 减少引用，没有引用的图层保留在缓存中，超出预算时再淘汰
+     */
+    public synchronized void release(Layers layers) {
+        if (layers.mRefCount <= 0) {
+            throw new IllegalStateException("layers already released");
+        }
+        layers.mRefCount--;
+        trim();
+    }
+
+    /**
+     * 淘汰所有没有引用的图层
+     */
+    public synchronized void evictAll() {
+        trimTo(0);
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    private synchronized void onLayerAdded(long bytes) {
+        mBytes += bytes;
+        trim();
+    }
+
+    private void trim() {
+        trimTo(mMaxBytes);
+    }
+
+    private void trimTo(long maxBytes) {
+        Iterator<Map.Entry<Key, Layers>> it = mMap.entrySet().iterator();
+        while (mBytes > maxBytes && it.hasNext()) {
+            Layers layers = it.next().getValue();
+            if (layers.mRefCount > 0) {
+                continue;
+            }
+            it.remove();
+            mBytes -= layers.recycle();
+        }
+    }
+
+    /**
+     * 缓存的键，决定图层内容的所有参数
+     * 图层按画布坐标绘制，几何布局决定了半径和所有位置，颜色、字体、字体大小、小时文本和细节层级决定了内容
+     */
+    public static final class Key {
+        final ClockGeometry.Spec geometry;
+        final int lightColor;
+        final int darkColor;
+        final int backgroundColor;
+        final float textSize;
+        final int scaleLineCount;
+        final int lod;
+        /* 字体，为null时是默认字体 */
+        final Typeface typeface;
+        final ClockNumerals numerals;
+
+        public Key(ClockGeometry.Spec geometry, int lightColor, int darkColor, int backgroundColor,
+                   float textSize, int scaleLineCount, int lod) {
+            this(geometry, lightColor, darkColor, backgroundColor, textSize, scaleLineCount, lod,
+                    null, ClockNumerals.CLASSIC);
+        }
+
+        public Key(ClockGeometry.Spec geometry, int lightColor, int darkColor, int backgroundColor,
+                   float textSize, int scaleLineCount, int lod, Typeface typeface, ClockNumerals numerals) {
+            this.geometry = geometry;
+            this.lightColor = lightColor;
+            this.darkColor = darkColor;
+            this.backgroundColor = backgroundColor;
+            this.textSize = textSize;
+            this.scaleLineCount = scaleLineCount;
+            this.lod = lod;
+            this.typeface = typeface;
+            this.numerals = numerals;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return geometry.equals(k.geometry)
+                    && lightColor == k.lightColor && darkColor == k.darkColor
+                    && backgroundColor == k.backgroundColor
+                    && Float.floatToIntBits(textSize) == Float.floatToIntBits(k.textSize)
+                    && scaleLineCount == k.scaleLineCount && lod == k.lod
+                    && (typeface == null ? k.typeface == null : typeface.equals(k.typeface))
+                    && numerals.equals(k.numerals);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = geometry.hashCode();
+            result = 31 * result + lightColor;
+            result = 31 * result + darkColor;
+            result = 31 * result + backgroundColor;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + scaleLineCount;
+            result = 31 * result + lod;
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + numerals.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * 一组共享的图层，每一层只填充一次，填充后不可修改
+     */
+    public static final class Layers {
+        private final ClockLayerCache mCache;
+        private int mRefCount;
+        private Bitmap mStaticLayer;
+        private float[] mScaleLinePoints;
+        private Bitmap mScaleRingSprite;
+
+        Layers(ClockLayerCache cache) {
+            mCache = cache;
+        }
+
+        public synchronized Bitmap getStaticLayer() {
+            return mStaticLayer;
+        }
+
+        public synchronized float[] getScaleLinePoints() {
+            return mScaleLinePoints;
+        }
+
+        public synchronized Bitmap getScaleRingSprite() {
+            return mScaleRingSprite;
+        }
+
+        /**
+         * 填充静态图层，已经被其他时钟填充时丢弃传入的图片，返回已有的
+         */
+        public Bitmap putStaticLayer(Bitmap layer) {
+            synchronized (this) {
+                if (mStaticLayer != null) {
+                    layer.recycle();
+                    return mStaticLayer;
+                }
+                mStaticLayer = layer;
+            }
+            mCache.onLayerAdded(byteCount(layer));
+            return layer;
+        }
+
+        /**
+         * 填充刻度线端点，已经被其他时钟填充时返回已有的
+         */
+        public float[] putScaleLinePoints(float[] points) {
+            synchronized (this) {
+                if (mScaleLinePoints != null) {
+                    return mScaleLinePoints;
+                }
+                mScaleLinePoints = points;
+            }
+            mCache.onLayerAdded(points.length * 4L);
+            return points;
+        }
+
+        /**
+         * 填充渐变圆弧图片，已经被其他时钟填充时丢弃传入的图片，返回已有的
+         */
+        public Bitmap putScaleRingSprite(Bitmap sprite) {
+            synchronized (this) {
+                if (mScaleRingSprite != null) {
+                    sprite.recycle();
+                    return mScaleRingSprite;
+                }
+                mScaleRingSprite = sprite;
+            }
+            mCache.onLayerAdded(byteCount(sprite));
+            return sprite;
+        }
+
+        /**
+         * 回收所有图层
+         *
+         * @return 释放的字节数
+         */
+        synchronized long recycle() {
+            long bytes = 0;
+            if (mStaticLayer != null) {
+                bytes += byteCount(mStaticLayer);
+                mStaticLayer.recycle();
+                mStaticLayer = null;
+            }
+            if (mScaleRingSprite != null) {
+                bytes += byteCount(mScaleRingSprite);
+                mScaleRingSprite.recycle();
+                mScaleRingSprite = null;
+            }
+            if (mScaleLinePoints != null) {
+                bytes += mScaleLinePoints.length * 4L;
+                mScaleLinePoints = null;
+            }
+            return bytes;
+        }
+
+        private static long byteCount(Bitmap bitmap) {
+            return (long) bitmap.getRowBytes() * bitmap.getHeight();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.monkey.miclockview;
+
+/**
+ * 细节层级，按表盘在屏幕上的半径决定绘制多少细节，列表和网格中的小时钟只画必要的部分
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public final class ClockLod {
+
+    /* 完整绘制 */
+    public static final int FULL = 0;
+    /* 中等：刻度线减少到每秒一根，渐变圆弧改为纯色 */
+    public static final int MEDIUM = 1;
+    /* 最低：不画刻度线和小时文本，指针改为三角形 */
+    public static final int LOW = 2;
+
+    /* 中等层级的默认半径阈值，小于这个半径时使用，单位dp */
+    public static final float DEFAULT_MEDIUM_RADIUS_DP = 100;
+    /* 最低层级的默认半径阈值，小于这个半径时使用，单位dp */
+    public static final float DEFAULT_LOW_RADIUS_DP = 40;
+    /* 中等层级的最大刻度线数量 */
+    static final int MEDIUM_SCALE_LINE_COUNT = 60;
+
+    private ClockLod() {
+    }
+
+    /**
+     * 根据表盘半径选择细节层级
+     *
+     * @param radius       表盘半径，单位px
+     * @param mediumRadius 半径小于这个值时使用 {@link #MEDIUM}，单位px，小于等于0表示不使用
+     * @param lowRadius    半径小于这个值时使用 {@link #LOW}，单位px，小于等于0表示不使用
+     * @return 细节层级
+     */
+    public static int select(float radius, float mediumRadius, float lowRadius) {
+        if (radius < lowRadius) {
+            return LOW;
+        }
+        if (radius < mediumRadius) {
+            return MEDIUM;
+        }
+        return FULL;
+    }
+
+    /**
+     * @param lod            细节层级
+     * @param scaleLineCount 设置的刻度线数量
+     * @return 该层级实际绘制的刻度线数量
+     */
+    public static int scaleLineCount(int lod, int scaleLineCount) {
+        switch (lod) {
+            case LOW:
+                return 0;
+            case MEDIUM:
+                return Math.min(scaleLineCount, MEDIUM_SCALE_LINE_COUNT);
+            default:
+                return scaleLineCount;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.monkey.miclockview;
+
+/**
+ * 时钟绘制开销的统计，按阶段记录耗时的直方图，以及绘制、跳过的帧数和松手复原的帧数
+ * 直方图的桶数固定，按微秒的2的幂划分，记录时只改写基本类型数组，不分配对象
+ * 只在绘制所在的线程使用，未设置到 {@link MiClockView#setMetrics(ClockMetrics)} 时没有任何开销
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public final class ClockMetrics {
+
+    /* 整个onDraw */
+    public static final int PHASE_FRAME = 0;
+    /* 小时文本和4个弧线，即静态图层 */
+    public static final int PHASE_TIME_TEXT = 1;
+    /* 渐变圆弧和刻度线 */
+    public static final int PHASE_SCALE_LINE = 2;
+    /* 秒针 */
+    public static final int PHASE_SECOND_HAND = 3;
+    /* 时针 */
+    public static final int PHASE_HOUR_HAND = 4;
+    /* 分针 */
+    public static final int PHASE_MINUTE_HAND = 5;
+    /* 阶段数量 */
+    public static final int PHASE_COUNT = 6;
+
+    /* 直方图的桶数，第i个桶记录[2^(i-1), 2^i)微秒，第0个桶记录不到1微秒，最后一个桶记录所有更长的 */
+    public static final int BUCKET_COUNT = 24;
+
+    /**
+     * 定期汇报统计结果
+     */
+    public interface OnReportListener {
+        /**
+         * 每绘制若干帧回调一次，在绘制线程执行
+         *
+         * @param snapshot 统计结果，对象会被反复使用，需要保留时用 {@link Snapshot#copyFrom(Snapshot)} 复制一份
+         */
+        void onReport(Snapshot snapshot);
+    }
+
+    private final Snapshot mData = new Snapshot();
+    /* 汇报时复用的快照 */
+    private final Snapshot mReport = new Snapshot();
+    private OnReportListener mListener;
+    /* 每绘制多少帧汇报一次 */
+    private int mReportInterval;
+    /* 距离上次汇报绘制的帧数 */
+    private int mFramesSinceReport;
+
+    /**
+     * 设置定期汇报的监听
+     *
+     * @param listener       监听，为null时不汇报
+     * @param intervalFrames 每绘制多少帧汇报一次，大于0
+     */
+    public void setOnReportListener(OnReportListener listener, int intervalFrames) {
+        if (listener != null && intervalFrames <= 0) {
+            throw new IllegalArgumentException("intervalFrames must be > 0");
+        }
+        mListener = listener;
+        mReportInterval = intervalFrames;
+        mFramesSinceReport = 0;
+    }
+
+    /**
+     * 开始计时，配合 {@link #lap(int, long)} 依次记录各阶段
+     *
+     * @return 当前时间，单位纳秒
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 记录从 since 到现在的耗时
+     *
+     * @param phase 阶段
+     * @param since 阶段开始的时间，单位纳秒
+     * @return 当前时间，作为下一个阶段的开始
+     */
+    public long lap(int phase, long since) {
+        long now = System.nanoTime();
+        record(phase, now - since);
+        return now;
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param phase 阶段
+     * @param nanos 耗时，单位纳秒
+     */
+    public void record(int phase, long nanos) {
+        Snapshot d = mData;
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        d.mCounts[phase]++;
+        d.mTotalNanos[phase] += nanos;
+        if (nanos > d.mMaxNanos[phase]) {
+            d.mMaxNanos[phase] = nanos;
+        }
+        d.mBuckets[phase * BUCKET_COUNT + bucketOf(nanos)]++;
+    }
+
+    /**
+     * 绘制完一帧后调用，到了汇报间隔时回调监听
+     */
+    public void onFrameRendered() {
+        mData.mFramesRendered++;
+        if (mListener != null && ++mFramesSinceReport >= mReportInterval) {
+            mFramesSinceReport = 0;
+            mReport.copyFrom(mData);
+            mListener.onReport(mReport);
+        }
+    }
+
+    /**
+     * 调度器收到vsync但因为帧率限制没有绘制时调用
+     */
+    public void onFrameSkipped() {
+        mData.mFramesSkipped++;
+    }
+
+    /**
+     * 松手复原的动画每推进一帧调用一次
+     */
+    public void onReleaseFrame() {
+        mData.mReleaseFrames++;
+    }
+
+    /**
+     * 把当前的统计结果复制到 out 中，不分配对象
+     *
+     * @param out 复制的目标
+     * @return out
+     */
+    public Snapshot snapshot(Snapshot out) {
+        out.copyFrom(mData);
+        return out;
+    }
+
+    /**
+     * @return 当前统计结果的一份新副本
+     */
+    public Snapshot snapshot() {
+        return snapshot(new Snapshot());
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        mData.clear();
+        mFramesSinceReport = 0;
+    }
+
+    /**
+     * @param nanos 耗时，单位纳秒
+     * @return 所在的桶
+     */
+    static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @param bucket 桶
+     * @return 桶的上界，单位纳秒，最后一个桶没有上界
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        if (bucket >= BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << bucket) * 1000;
+    }
+
+    /**
+     * 统计结果，全部是基本类型数组，可以反复复制使用
+     */
+    public static final class Snapshot {
+
+        private final long[] mCounts = new long[PHASE_COUNT];
+        private final long[] mTotalNanos = new long[PHASE_COUNT];
+        private final long[] mMaxNanos = new long[PHASE_COUNT];
+        /* 各阶段的直方图依次排列 */
+        private final long[] mBuckets = new long[PHASE_COUNT * BUCKET_COUNT];
+        private long mFramesRendered;
+        private long mFramesSkipped;
+        private long mReleaseFrames;
+
+        /**
+         * 复制另一份统计结果
+         *
+         * @param other 来源
+         */
+        public void copyFrom(Snapshot other) {
+            System.arraycopy(other.mCounts, 0, mCounts, 0, PHASE_COUNT);
+            System.arraycopy(other.mTotalNanos, 0, mTotalNanos, 0, PHASE_COUNT);
+            System.arraycopy(other.mMaxNanos, 0, mMaxNanos, 0, PHASE_COUNT);
+            System.arraycopy(other.mBuckets, 0, mBuckets, 0, mBuckets.length);
+            mFramesRendered = other.mFramesRendered;
+            mFramesSkipped = other.mFramesSkipped;
+            mReleaseFrames = other.mReleaseFrames;
+        }
+
+        void clear() {
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                mCounts[i] = 0;
+                mTotalNanos[i] = 0;
+                mMaxNanos[i] = 0;
+            }
+            for (int i = 0; i < mBuckets.length; i++) {
+                mBuckets[i] = 0;
+            }
+            mFramesRendered = 0;
+            mFramesSkipped = 0;
+            mReleaseFrames = 0;
+        }
+
+        /**
+         * @return 阶段记录的次数
+         */
+        public long getCount(int phase) {
+            return mCounts[phase];
+        }
+
+        /**
+         * @return 阶段的总耗时，单位纳秒
+         */
+        public long getTotalNanos(int phase) {
+            return mTotalNanos[phase];
+        }
+
+        /**
+         * @return 阶段的最长耗时，单位纳秒
+         */
+        public long getMaxNanos(int phase) {
+            return mMaxNanos[phase];
+        }
+
+        /**
+         * @return 阶段的平均耗时，单位纳秒，没有记录时为0
+         */
+        public long getAverageNanos(int phase) {
+            return mCounts[phase] == 0 ? 0 : mTotalNanos[phase] / mCounts[phase];
+        }
+
+        /**
+         * @return 阶段落在某个桶中的次数，桶的上界见 {@link ClockMetrics#bucketUpperBoundNanos(int)}
+         */
+        public long getBucketCount(int phase, int bucket) {
+            return mBuckets[phase * BUCKET_COUNT + bucket];
+        }
+
+        /**
+         * 按直方图估算百分位耗时，取所在桶的上界，不超过记录到的最长耗时
+         *
+         * @param phase      阶段
+         * @param percentile 百分位，范围(0, 100]
+         * @return 估算的耗时，单位纳秒，没有记录时为0
+         */
+        public long getPercentileNanos(int phase, float percentile) {
+            long count = mCounts[phase];
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            int offset = phase * BUCKET_COUNT;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[offset + i];
+                if (seen >= target) {
+                    return Math.min(bucketUpperBoundNanos(i), mMaxNanos[phase]);
+                }
+            }
+            return mMaxNanos[phase];
+        }
+
+        public long getFramesRendered() {
+            return mFramesRendered;
+        }
+
+        public long getFramesSkipped() {
+            return mFramesSkipped;
+        }
+
+        public long getReleaseFrames() {
+            return mReleaseFrames;
+        }
+    }
+}
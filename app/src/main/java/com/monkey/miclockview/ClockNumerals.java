@@ -0,0 +1,117 @@
+package com.monkey.miclockview;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 表盘上12个小时位置的文本，下标0为12点，依次顺时针，为null的位置不画
+ * 按内容比较，可以作为缓存的键。不依赖Android框架，可以直接在JVM上测试
+ */
+public final class ClockNumerals {
+
+    /* 每圈的小时位置数 */
+    public static final int COUNT = 12;
+
+    /* 原来的样子，只在12、3、6、9点画数字 */
+    public static final ClockNumerals CLASSIC = new ClockNumerals(new String[]{
+            "12", null, null, "3", null, null, "6", null, null, "9", null, null});
+    /* 12个阿拉伯数字 */
+    public static final ClockNumerals ARABIC = withDigits('0');
+    /* 12个罗马数字 */
+    public static final ClockNumerals ROMAN = new ClockNumerals(new String[]{
+            "XII", "I", "II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X", "XI"});
+    /* 12个阿拉伯-印度数字 */
+    public static final ClockNumerals ARABIC_INDIC = withDigits('\u0660');
+
+    private final String[] mLabels;
+
+    private ClockNumerals(String[] labels) {
+        mLabels = labels;
+    }
+
+    /**
+     * 自定义每个位置的文本
+     *
+     * @param labels 12个文本，下标0为12点，为null或空的位置不画
+     * @return 文本
+     */
+    public static ClockNumerals of(String... labels) {
+        if (labels == null || labels.length != COUNT) {
+            throw new IllegalArgumentException("expected " + COUNT + " labels");
+        }
+        String[] copy = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            copy[i] = labels[i] == null || labels[i].isEmpty() ? null : labels[i];
+        }
+        return new ClockNumerals(copy);
+    }
+
+    /**
+     * 用某种文字的十进制数字写1到12
+     *
+     * @param zeroDigit 这种文字的数字0，其余数字的码点依次加1
+     * @return 文本
+     */
+    public static ClockNumerals withDigits(char zeroDigit) {
+        String[] labels = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            int hour = i == 0 ? 12 : i;
+            StringBuilder sb = new StringBuilder(2);
+            if (hour >= 10) {
+                sb.append((char) (zeroDigit + hour / 10));
+            }
+            sb.append((char) (zeroDigit + hour % 10));
+            labels[i] = sb.toString();
+        }
+        return new ClockNumerals(labels);
+    }
+
+    /**
+     * @param locale 区域
+     * @return 用该区域的数字写1到12
+     */
+    public static ClockNumerals forLocale(Locale locale) {
+        return withDigits(DecimalFormatSymbols.getInstance(locale).getZeroDigit());
+    }
+
+    /**
+     * @param value {@link R.styleable#MiClockView_numerals} 属性的枚举值
+     * @return 对应的内置文本
+     */
+    static ClockNumerals fromAttribute(int value) {
+        switch (value) {
+            case 1:
+                return ARABIC;
+            case 2:
+                return ROMAN;
+            case 3:
+                return ARABIC_INDIC;
+            default:
+                return CLASSIC;
+        }
+    }
+
+    /**
+     * @param position 小时位置，0为12点
+     * @return 文本，不画时为null
+     */
+    public String getLabel(int position) {
+        return mLabels[position];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ClockNumerals && Arrays.equals(mLabels, ((ClockNumerals) o).mLabels);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(mLabels);
+    }
+
+    @Override
+    public String toString() {
+        return "ClockNumerals" + Arrays.toString(mLabels);
+    }
+}
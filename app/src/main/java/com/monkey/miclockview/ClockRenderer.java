@@ -0,0 +1,992 @@
+package com.monkey.miclockview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Camera;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.SweepGradient;
+import android.graphics.Typeface;
+
+/**
+ * 仿小米时钟的绘制引擎，不依赖View
+ * 设置一次尺寸后，每次绘制传入时分秒针角度和倾斜状态，可以画到任意Canvas上
+ * 同一个实例同一时间只能在一个线程中使用
+ */
+public class ClockRenderer {
+
+    /* 小时文本画笔 */
+    private Paint mTextPaint;
+    /* 小时文本的排版缓存 */
+    private final ClockTextLayout mTextLayout = new ClockTextLayout();
+    /* 小时圆圈画笔 */
+    private Paint mCirclePaint;
+    /* 刻度圆弧画笔 */
+    private Paint mScaleArcPaint;
+    /* 刻度线画笔 */
+    private Paint mScaleLinePaint;
+    /* 时针画笔 */
+    private Paint mHourHandPaint;
+    /* 分针画笔 */
+    private Paint mMinuteHandPaint;
+    /* 秒针画笔 */
+    private Paint mSecondHandPaint;
+
+    /* 亮色，用于分针、秒针、渐变终止色 */
+    private int mLightColor;
+    /* 暗色，圆弧、刻度线、时针、渐变起始色 */
+    private int mDarkColor;
+    /* 背景色 */
+    private int mBackgroundColor;
+    /* 小时文本字体大小 */
+    private float mTextSize;
+    /* 画布的宽 */
+    private int mWidth;
+    /* 画布的高 */
+    private int mHeight;
+    /* 宿主设置的padding值 */
+    private int mPaddingLeft;
+    private int mPaddingTop;
+    private int mPaddingRight;
+    private int mPaddingBottom;
+    /* 表盘的几何布局，尺寸、字体大小或皮肤改变时整体替换，未设置尺寸时为null */
+    private ClockGeometry mGeometry;
+    /* 皮肤，决定指针轮廓和各部分的比例 */
+    private ClockSkin mSkin = ClockSkin.CLASSIC;
+    /* 刻度线数量 */
+    private int mScaleLineCount = ScaleLineMesh.DEFAULT_COUNT;
+    /* 细节层级，见 {@link ClockLod} */
+    private int mLod = ClockLod.FULL;
+    /* 当前层级实际绘制的刻度线数量 */
+    private int mLodScaleLineCount = ScaleLineMesh.DEFAULT_COUNT;
+    /* 预先计算好的刻度线端点，一次drawLines画完一圈 */
+    private float[] mScaleLinePoints;
+    /* 刻度线端点是否需要重新计算，尺寸、字体大小改变时置为true */
+    private boolean mScaleLinesDirty = true;
+
+    /* 梯度扫描渐变 */
+    private SweepGradient mSweepGradient;
+    /* 渐变矩阵，作用在SweepGradient */
+    private Matrix mGradientMatrix;
+    /* 触摸时作用在Camera的矩阵 */
+    private Matrix mCameraMatrix;
+    /* 照相机，用于旋转时钟实现3D效果 */
+    private Camera mCamera;
+    /* 静态表盘图层，缓存最外圈的时间文本和4个弧线，避免每帧重绘 */
+    private Bitmap mStaticLayer;
+    /* 静态图层是否需要重建，尺寸、颜色、字体大小改变时置为true */
+    private boolean mStaticLayerDirty = true;
+    /* 绘制静态图层的画笔，开启过滤使camera旋转后的图层边缘平滑 */
+    private Paint mStaticLayerPaint;
+    /* 是否把渐变圆弧和刻度线缓存成一张图片，每帧只旋转这张图片 */
+    private boolean mScaleRingCached;
+    /* 缓存的渐变圆弧和刻度线图片 */
+    private Bitmap mScaleRingSprite;
+    /* 缓存的渐变圆弧图片是否需要重建 */
+    private boolean mScaleRingDirty = true;
+    /* 构造方法中创建的所有画笔，进出常亮模式时统一切换抗锯齿 */
+    private final Paint[] mPaints;
+    /* 是否处于常亮模式 */
+    private boolean mAmbient;
+    /* 常亮模式下整个表盘的防烧屏位移 */
+    private float mBurnInOffsetX;
+    private float mBurnInOffsetY;
+    /* 各绘制阶段耗时的统计，为null时不统计 */
+    private ClockMetrics mMetrics;
+    /* 共享图层的缓存，为null时图层由自己持有 */
+    private ClockLayerCache mLayerCache;
+    /* 当前使用的共享图层 */
+    private ClockLayerCache.Layers mSharedLayers;
+    /* 当前共享图层对应的键 */
+    private ClockLayerCache.Key mSharedKey;
+
+    /**
+     * @param lightColor      亮色，用于分针、秒针、渐变终止色
+     * @param darkColor       暗色，圆弧、刻度线、时针、渐变起始色
+     * @param backgroundColor 背景色，用于刻度线
+     * @param textSize        小时文本字体大小，单位px
+     */
+    public ClockRenderer(int lightColor, int darkColor, int backgroundColor, float textSize) {
+        mLightColor = lightColor;
+        mDarkColor = darkColor;
+        mBackgroundColor = backgroundColor;
+        mTextSize = textSize;
+
+        mHourHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mHourHandPaint.setStyle(Paint.Style.FILL);
+        mHourHandPaint.setColor(mDarkColor);
+
+        mMinuteHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mMinuteHandPaint.setColor(mLightColor);
+
+        mSecondHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mSecondHandPaint.setStyle(Paint.Style.FILL);
+        mSecondHandPaint.setColor(mLightColor);
+
+        mScaleLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mScaleLinePaint.setStyle(Paint.Style.STROKE);
+        mScaleLinePaint.setColor(mBackgroundColor);
+
+        mScaleArcPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mScaleArcPaint.setStyle(Paint.Style.STROKE);
+
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setStyle(Paint.Style.FILL);
+        mTextPaint.setColor(mDarkColor);
+        mTextPaint.setTextSize(mTextSize);
+
+        mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mCirclePaint.setStyle(Paint.Style.STROKE);
+        mCirclePaint.setStrokeWidth(ClockGeometry.CIRCLE_STROKE_WIDTH);
+        mCirclePaint.setColor(mDarkColor);
+
+        mStaticLayerPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+        mPaints = new Paint[]{mHourHandPaint, mMinuteHandPaint, mSecondHandPaint, mScaleLinePaint,
+                mScaleArcPaint, mTextPaint, mCirclePaint, mStaticLayerPaint};
+
+        mGradientMatrix = new Matrix();
+        mCameraMatrix = new Matrix();
+        mCamera = new Camera();
+    }
+
+    /**
+     * 根据 {@link R.styleable#MiClockView} 属性创建绘制引擎，供各种宿主共用
+     *
+     * @param context 上下文
+     * @param ta      MiClockView的属性，调用方负责回收
+     * @return 绘制引擎
+     */
+    public static ClockRenderer fromAttributes(Context context, TypedArray ta) {
+        int skinId = ta.getResourceId(R.styleable.MiClockView_skin, 0);
+        ClockSkin skin = skinId != 0 ? ClockSkin.load(context, skinId) : ClockSkin.CLASSIC;
+        //皮肤的颜色和刻度线数量作为默认值，属性中单独设置的优先
+        ClockRenderer renderer = new ClockRenderer(
+                ta.getColor(R.styleable.MiClockView_lightColor, skin.getLightColor()),
+                ta.getColor(R.styleable.MiClockView_darkColor, skin.getDarkColor()),
+                ta.getColor(R.styleable.MiClockView_backgroundColor, skin.getBackgroundColor()),
+                ta.getDimension(R.styleable.MiClockView_textSize, DensityUtils.sp2px(context, 14)));
+        renderer.setSkin(skin);
+        renderer.setNumerals(ClockNumerals.fromAttribute(ta.getInt(R.styleable.MiClockView_numerals, 0)));
+        renderer.setScaleLineCount(Math.max(0,
+                ta.getInt(R.styleable.MiClockView_scaleLineCount, skin.getScaleLineCount())));
+        renderer.setScaleRingCached(ta.getBoolean(R.styleable.MiClockView_cacheScaleRing, false));
+        if (ta.getBoolean(R.styleable.MiClockView_sharedLayers, false)) {
+            renderer.setLayerCache(ClockLayerCache.getDefault());
+        }
+        return renderer;
+    }
+
+    /**
+     * 设置亮色，用于分针、秒针、渐变终止色
+     *
+     * @param lightColor 亮色
+     */
+    public void setLightColor(int lightColor) {
+        if (mLightColor == lightColor) {
+            return;
+        }
+        mLightColor = lightColor;
+        applyPaintColors();
+        onColorsChanged();
+    }
+
+    public int getLightColor() {
+        return mLightColor;
+    }
+
+    /**
+     * 设置暗色，用于圆弧、刻度线、时针、渐变起始色
+     *
+     * @param darkColor 暗色
+     */
+    public void setDarkColor(int darkColor) {
+        if (mDarkColor == darkColor) {
+            return;
+        }
+        mDarkColor = darkColor;
+        applyPaintColors();
+        onColorsChanged();
+    }
+
+    public int getDarkColor() {
+        return mDarkColor;
+    }
+
+    /**
+     * 设置背景色，刻度线用背景色盖在渐变圆弧上
+     * 引擎本身不画背景，宿主需要自己用这个颜色填充
+     *
+     * @param backgroundColor 背景色
+     */
+    public void setBackgroundColor(int backgroundColor) {
+        if (mBackgroundColor == backgroundColor) {
+            return;
+        }
+        mBackgroundColor = backgroundColor;
+        applyPaintColors();
+        mScaleRingDirty = true;
+    }
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    /**
+     * 设置小时文本的字体大小
+     *
+     * @param textSize 字体大小，单位px
+     */
+    public void setTextSize(float textSize) {
+        if (mTextSize == textSize) {
+            return;
+        }
+        mTextSize = textSize;
+        mTextPaint.setTextSize(mTextSize);
+        //文本尺寸决定了刻度线和指针的位置
+        updateGeometry();
+    }
+
+    public float getTextSize() {
+        return mTextSize;
+    }
+
+    /**
+     * 设置小时文本的字体
+     *
+     * @param typeface 字体，为null时使用默认字体
+     */
+    public void setTypeface(Typeface typeface) {
+        if (mTextPaint.getTypeface() == typeface) {
+            return;
+        }
+        mTextPaint.setTypeface(typeface);
+        updateGeometry();
+    }
+
+    public Typeface getTypeface() {
+        return mTextPaint.getTypeface();
+    }
+
+    /**
+     * 设置表盘上各小时位置的文本，例如全部12个数字、罗马数字或本地化的数字
+     * 字形边界只在字体、字号或文本改变时测量一次
+     *
+     * @param numerals 文本，见 {@link ClockNumerals}
+     */
+    public void setNumerals(ClockNumerals numerals) {
+        if (numerals == null) {
+            throw new IllegalArgumentException("numerals must not be null");
+        }
+        if (mTextLayout.setNumerals(numerals)) {
+            //最高的文本决定了小时圆圈的位置
+            updateGeometry();
+        }
+    }
+
+    public ClockNumerals getNumerals() {
+        return mTextLayout.getNumerals();
+    }
+
+    /**
+     * 设置刻度线数量
+     *
+     * @param scaleLineCount 一圈刻度线的数量
+     */
+    public void setScaleLineCount(int scaleLineCount) {
+        if (scaleLineCount < 0) {
+            throw new IllegalArgumentException("scaleLineCount must be >= 0");
+        }
+        if (mScaleLineCount == scaleLineCount) {
+            return;
+        }
+        mScaleLineCount = scaleLineCount;
+        mLodScaleLineCount = ClockLod.scaleLineCount(mLod, mScaleLineCount);
+        mScaleLinesDirty = true;
+    }
+
+    public int getScaleLineCount() {
+        return mScaleLineCount;
+    }
+
+    /**
+     * 设置皮肤，同时把刻度线数量设为皮肤的值，颜色由宿主决定是否跟随皮肤，
+     * 宿主单独设置过刻度线数量时需要在之后重新设置
+     * 在当前线程取几何布局，没有缓存时会编译指针路径，不想占用绘制的那一帧可以先用
+     * {@link #getSpec(ClockSkin)} 和 {@link ClockGeometry#prefetch(ClockGeometry.Spec, Runnable)} 在后台编译
+     *
+     * @param skin 皮肤
+     */
+    public void setSkin(ClockSkin skin) {
+        if (skin == null) {
+            throw new IllegalArgumentException("skin must not be null");
+        }
+        if (mSkin == skin) {
+            return;
+        }
+        mSkin = skin;
+        setScaleLineCount(skin.getScaleLineCount());
+        updateGeometry();
+    }
+
+    public ClockSkin getSkin() {
+        return mSkin;
+    }
+
+    /**
+     * 设置细节层级，小尺寸时少画刻度线、用纯色圆弧、不画小时文本、用三角形指针
+     * 通常由宿主在尺寸改变时用 {@link ClockLod#select(float, float, float)} 选择
+     *
+     * @param lod {@link ClockLod#FULL}、{@link ClockLod#MEDIUM} 或 {@link ClockLod#LOW}
+     */
+    public void setLod(int lod) {
+        if (lod != ClockLod.FULL && lod != ClockLod.MEDIUM && lod != ClockLod.LOW) {
+            throw new IllegalArgumentException("unknown lod: " + lod);
+        }
+        if (mLod == lod) {
+            return;
+        }
+        mLod = lod;
+        mLodScaleLineCount = ClockLod.scaleLineCount(mLod, mScaleLineCount);
+        mStaticLayerDirty = true;
+        mScaleLinesDirty = true;
+        mScaleRingDirty = true;
+    }
+
+    public int getLod() {
+        return mLod;
+    }
+
+    /**
+     * 设置常亮模式，用于息屏显示等低功耗场景
+     * 关闭所有画笔的抗锯齿和渐变着色，不画秒针，颜色削减为几级灰度，刻度线改用黑色背景色，
+     * 文本和渐变圆弧直接画，不使用缓存的图层。切换时只改画笔的状态，不创建新的画笔、路径和图片
+     * 宿主需要自己用 {@link ClockAmbient#BACKGROUND_COLOR} 填充背景，并只在分钟变化时重绘
+     *
+     * @param ambient 是否常亮模式
+     */
+    public void setAmbient(boolean ambient) {
+        if (mAmbient == ambient) {
+            return;
+        }
+        mAmbient = ambient;
+        for (Paint paint : mPaints) {
+            paint.setAntiAlias(!ambient);
+        }
+        mStaticLayerPaint.setFilterBitmap(!ambient);
+        applyPaintColors();
+    }
+
+    public boolean isAmbient() {
+        return mAmbient;
+    }
+
+    /**
+     * 设置常亮模式下整个表盘的位移，防止长时间显示同一个画面烧屏，只移动画布，不重新布局
+     * 通常由宿主每分钟按 {@link ClockAmbient#burnInOffsetX(long, int)} 更新
+     *
+     * @param dx 水平位移，单位px
+     * @param dy 垂直位移，单位px
+     */
+    public void setBurnInOffset(float dx, float dy) {
+        mBurnInOffsetX = dx;
+        mBurnInOffsetY = dy;
+    }
+
+    /**
+     * 按当前模式设置各画笔的颜色，常亮模式下削减为灰度
+     */
+    private void applyPaintColors() {
+        int dark = displayColor(mDarkColor);
+        int light = displayColor(mLightColor);
+        mHourHandPaint.setColor(dark);
+        mTextPaint.setColor(dark);
+        mCirclePaint.setColor(dark);
+        mMinuteHandPaint.setColor(light);
+        mSecondHandPaint.setColor(light);
+        mScaleLinePaint.setColor(mAmbient ? ClockAmbient.BACKGROUND_COLOR : mBackgroundColor);
+    }
+
+    /**
+     * @return 当前模式下实际绘制的颜色
+     */
+    private int displayColor(int color) {
+        return mAmbient ? ClockAmbient.reduceColor(color) : color;
+    }
+
+    /**
+     * 设置是否缓存渐变圆弧和刻度线
+     * 开启后渐变圆弧和背景色刻度线只渲染一次到图片中，每帧把图片按秒针角度旋转后绘制，
+     * 不再每帧重新着色整圈渐变圆弧，适合大尺寸屏幕。旋转角度按刻度线间隔取整，保证刻度线位置不变
+     *
+     * @param cached 是否缓存
+     */
+    public void setScaleRingCached(boolean cached) {
+        if (mScaleRingCached == cached) {
+            return;
+        }
+        mScaleRingCached = cached;
+        if (!cached) {
+            recycleScaleRingSprite();
+        }
+    }
+
+    public boolean isScaleRingCached() {
+        return mScaleRingCached;
+    }
+
+    /**
+     * 设置共享图层的缓存，同样尺寸、颜色、字体大小的时钟共用静态图层、刻度线和渐变圆弧图片
+     * 同屏有很多时钟时使用，见 {@link ClockLayerCache#getDefault()}
+     *
+     * @param cache 缓存，为null时图层由自己持有
+     */
+    public void setLayerCache(ClockLayerCache cache) {
+        if (mLayerCache == cache) {
+            return;
+        }
+        release();
+        mLayerCache = cache;
+    }
+
+    public ClockLayerCache getLayerCache() {
+        return mLayerCache;
+    }
+
+    /**
+     * 设置绘制开销的统计，记录静态图层、刻度线和三根指针各阶段的耗时
+     *
+     * @param metrics 统计，为null时不统计
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public ClockMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 亮暗色改变后，重建渐变和缓存的图层
+     */
+    private void onColorsChanged() {
+        if (mGeometry != null) {
+            mSweepGradient = new SweepGradient(mGeometry.getCenterX(), mGeometry.getCenterY(),
+                    new int[]{mDarkColor, mLightColor}, new float[]{0.75f, 1});
+        }
+        mStaticLayerDirty = true;
+        mScaleRingDirty = true;
+    }
+
+    /**
+     * 设置画布尺寸，计算表盘半径和各部分的位置
+     *
+     * @param w             画布的宽
+     * @param h             画布的高
+     * @param paddingLeft   左边距
+     * @param paddingTop    上边距
+     * @param paddingRight  右边距
+     * @param paddingBottom 下边距
+     */
+    public void setSize(int w, int h, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+        mWidth = w;
+        mHeight = h;
+        mPaddingLeft = paddingLeft;
+        mPaddingTop = paddingTop;
+        mPaddingRight = paddingRight;
+        mPaddingBottom = paddingBottom;
+        updateGeometry();
+    }
+
+    /**
+     * 按当前尺寸和小时文本的大小重新取几何布局，所有图层随之重建
+     */
+    private void updateGeometry() {
+        mStaticLayerDirty = true;
+        mScaleLinesDirty = true;
+        mScaleRingDirty = true;
+        if (mWidth <= 0 || mHeight <= 0) {
+            mGeometry = null;
+            return;
+        }
+        mGeometry = ClockGeometry.obtain(getSpec(mSkin));
+        mScaleArcPaint.setStrokeWidth(mGeometry.getScaleLength());
+        mScaleLinePaint.setStrokeWidth(mGeometry.getScaleLineWidth());
+        //梯度扫描渐变，以(w/2,h/2)为中心点，两种起止颜色梯度渐变
+        //float数组表示，[0,0.75)为起始颜色所占比例，[0.75,1}为起止颜色渐变所占比例
+        mSweepGradient = new SweepGradient(mGeometry.getCenterX(), mGeometry.getCenterY(),
+                new int[]{mDarkColor, mLightColor}, new float[]{0.75f, 1});
+        //常亮模式下画笔是灰度、没有抗锯齿的，静态图层等退出后再建
+        if (!mAmbient) {
+            buildStaticLayer();
+        }
+        buildScaleLines();
+    }
+
+    /**
+     * 按当前尺寸和小时文本的大小，换成给定皮肤时的几何布局参数
+     *
+     * @param skin 皮肤
+     * @return 参数，未设置尺寸时为null
+     */
+    public ClockGeometry.Spec getSpec(ClockSkin skin) {
+        if (mWidth <= 0 || mHeight <= 0) {
+            return null;
+        }
+        //字体和字号没变时不会重新测量
+        mTextLayout.measure(mTextPaint);
+        return new ClockGeometry.Spec(mWidth, mHeight, mPaddingLeft, mPaddingTop, mPaddingRight, mPaddingBottom,
+                mTextLayout.getTextHeight(), skin);
+    }
+
+    /**
+     * @return 当前的几何布局，未设置尺寸时为null
+     */
+    public ClockGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 时钟半径，不包括padding值
+     */
+    public float getRadius() {
+        return mGeometry != null ? mGeometry.getRadius() : 0;
+    }
+
+    /**
+     * 释放缓存图层占用的内存，下次绘制时重建
+     */
+    public void release() {
+        if (mLayerCache != null) {
+            releaseSharedLayers();
+            return;
+        }
+        recycleStaticLayer();
+        recycleScaleRingSprite();
+    }
+
+    /**
+     * 绘制一帧时钟，不包括背景
+     *
+     * @param canvas 画布，尺寸应与 {@link #setSize} 设置的一致
+     * @param angles 时分秒针的角度
+     * @param tilt   camera旋转的角度和指针的位移，记下的触摸坐标会在绘制时换算
+     */
+    public void draw(Canvas canvas, ClockAngles angles, ClockTilt tilt) {
+        draw(canvas, angles, tilt, null);
+    }
+
+    /**
+     * 绘制一帧多时区时钟，所有时区共用一个表盘、渐变圆弧和秒针，每个时区只多画一组时针和分针
+     *
+     * @param canvas 画布，尺寸应与 {@link #setSize} 设置的一致
+     * @param angles 秒针和渐变圆弧的角度，没有时区时也用于时针和分针
+     * @param tilt   camera旋转的角度和指针的位移
+     * @param zones  各时区的时针和分针，角度需要事先更新，为null或空时只画 angles 的时针和分针
+     */
+    public void draw(Canvas canvas, ClockAngles angles, ClockTilt tilt, ClockZone[] zones) {
+        if (mGeometry == null) {
+            return;
+        }
+        //不统计时只多一次判空
+        ClockMetrics metrics = mMetrics;
+        long t = metrics != null ? metrics.start() : 0;
+        int saveCount = canvas.save();
+        if (mAmbient) {
+            canvas.translate(mBurnInOffsetX, mBurnInOffsetY);
+        }
+        setCameraRotate(canvas, tilt);
+        drawStaticLayer(canvas);
+        if (metrics != null) {
+            t = metrics.lap(ClockMetrics.PHASE_TIME_TEXT, t);
+        }
+        drawScaleLine(canvas, angles.getSecondDegree(), tilt);
+        if (metrics != null) {
+            t = metrics.lap(ClockMetrics.PHASE_SCALE_LINE, t);
+        }
+        if (!mAmbient) {
+            drawSecondHand(canvas, angles.getSecondDegree(), tilt);
+            if (metrics != null) {
+                t = metrics.lap(ClockMetrics.PHASE_SECOND_HAND, t);
+            }
+        }
+        if (zones == null || zones.length == 0) {
+            drawHourHand(canvas, angles.getHourDegree(), tilt);
+            if (metrics != null) {
+                t = metrics.lap(ClockMetrics.PHASE_HOUR_HAND, t);
+            }
+            drawMinuteHand(canvas, angles.getMinuteDegree(), tilt);
+            if (metrics != null) {
+                metrics.lap(ClockMetrics.PHASE_MINUTE_HAND, t);
+            }
+        } else {
+            //各时区的耗时累加起来，每帧每个阶段只记录一次，与 PHASE_FRAME 的次数一致
+            long hourNanos = 0;
+            long minuteNanos = 0;
+            for (ClockZone zone : zones) {
+                mHourHandPaint.setColor(displayColor(zone.getHourColor()));
+                mMinuteHandPaint.setColor(displayColor(zone.getMinuteColor()));
+                drawHourHand(canvas, zone.getAngles().getHourDegree(), tilt);
+                if (metrics != null) {
+                    long now = System.nanoTime();
+                    hourNanos += now - t;
+                    t = now;
+                }
+                drawMinuteHand(canvas, zone.getAngles().getMinuteDegree(), tilt);
+                if (metrics != null) {
+                    long now = System.nanoTime();
+                    minuteNanos += now - t;
+                    t = now;
+                }
+            }
+            mHourHandPaint.setColor(displayColor(mDarkColor));
+            mMinuteHandPaint.setColor(displayColor(mLightColor));
+            if (metrics != null) {
+                metrics.record(ClockMetrics.PHASE_HOUR_HAND, hourNanos);
+                metrics.record(ClockMetrics.PHASE_MINUTE_HAND, minuteNanos);
+            }
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 设置3D时钟效果，触摸矩阵的相关设置、照相机的旋转大小
+     * 应用在绘制图形之前，否则无效
+     * 这一帧内记下的触摸坐标在这里统一换算一次
+     */
+    private void setCameraRotate(Canvas canvas, ClockTilt tilt) {
+        tilt.applyPendingTouch();
+        mCameraMatrix.reset();
+        mCamera.save();
+        mCamera.rotateX(tilt.getCameraRotateX());//绕x轴旋转角度
+        mCamera.rotateY(tilt.getCameraRotateY());//绕y轴旋转角度
+        mCamera.getMatrix(mCameraMatrix);//相关属性设置到matrix中
+        mCamera.restore();
+        //camera在画布左上角那个点，故旋转默认是以左上角为中心旋转
+        //故在动作之前pre将matrix向左移动mWidth/2长度，向上移动mHeight/2长度
+        mCameraMatrix.preTranslate(-mGeometry.getCenterX(), -mGeometry.getCenterY());
+        //在动作之后post再回到原位
+        mCameraMatrix.postTranslate(mGeometry.getCenterX(), mGeometry.getCenterY());
+        canvas.concat(mCameraMatrix);//matrix与canvas相关联
+    }
+
+    /**
+     * 构建静态图层，把时间文本和4个弧线画到离屏的Bitmap上
+     */
+    private void buildStaticLayer() {
+        if (mGeometry == null) {
+            return;
+        }
+        if (mLayerCache != null) {
+            buildSharedStaticLayer();
+            return;
+        }
+        if (mStaticLayer == null || mStaticLayer.isRecycled()
+                || mStaticLayer.getWidth() != mWidth || mStaticLayer.getHeight() != mHeight) {
+            recycleStaticLayer();
+            mStaticLayer = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        } else {
+            mStaticLayer.eraseColor(Color.TRANSPARENT);
+        }
+        drawTimeText(new Canvas(mStaticLayer));
+        mStaticLayerDirty = false;
+    }
+
+    /**
+     * 从共享缓存中取静态图层，其他时钟还没画过时自己画一份放进去
+     */
+    private void buildSharedStaticLayer() {
+        acquireSharedLayers();
+        Bitmap layer = mSharedLayers.getStaticLayer();
+        if (layer == null) {
+            layer = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            drawTimeText(new Canvas(layer));
+            layer = mSharedLayers.putStaticLayer(layer);
+        }
+        mStaticLayer = layer;
+        mStaticLayerDirty = false;
+    }
+
+    /**
+     * 预先计算一圈刻度线的端点
+     */
+    private void buildScaleLines() {
+        if (mGeometry == null) {
+            return;
+        }
+        if (mLayerCache != null) {
+            acquireSharedLayers();
+            float[] points = mSharedLayers.getScaleLinePoints();
+            if (points == null) {
+                //共享的数组不能复用写入，每次新建
+                points = mSharedLayers.putScaleLinePoints(buildScaleLinePoints(null));
+            }
+            mScaleLinePoints = points;
+        } else {
+            mScaleLinePoints = buildScaleLinePoints(mScaleLinePoints);
+        }
+        mScaleLinesDirty = false;
+        mScaleRingDirty = true;
+    }
+
+    private float[] buildScaleLinePoints(float[] out) {
+        return ScaleLineMesh.build(mGeometry.getCenterX(), mGeometry.getCenterY(),
+                mGeometry.getScaleLineStartY(), mGeometry.getScaleLineStopY(), mLodScaleLineCount, out);
+    }
+
+    /**
+     * 按当前的尺寸、颜色、字体大小取共享图层，参数变了就换一组，之前取到的图层全部作废
+     */
+    private void acquireSharedLayers() {
+        ClockLayerCache.Key key = new ClockLayerCache.Key(mGeometry.getSpec(),
+                mLightColor, mDarkColor, mBackgroundColor, mTextSize, mLodScaleLineCount, mLod,
+                mTextPaint.getTypeface(), mTextLayout.getNumerals());
+        if (mSharedLayers != null && key.equals(mSharedKey)) {
+            return;
+        }
+        releaseSharedLayers();
+        mSharedLayers = mLayerCache.acquire(key);
+        mSharedKey = key;
+    }
+
+    /**
+     * 归还共享图层，共享的图片由缓存负责回收，这里只丢掉引用
+     */
+    private void releaseSharedLayers() {
+        if (mSharedLayers != null) {
+            mLayerCache.release(mSharedLayers);
+            mSharedLayers = null;
+            mSharedKey = null;
+        }
+        mStaticLayer = null;
+        mScaleLinePoints = null;
+        mScaleRingSprite = null;
+        mStaticLayerDirty = true;
+        mScaleLinesDirty = true;
+        mScaleRingDirty = true;
+    }
+
+    /**
+     * 构建渐变圆弧和刻度线的缓存图片，秒针角度为0时的样子，图片中心对应表盘中心
+     */
+    private void buildScaleRingSprite() {
+        int size = mGeometry.getScaleRingSpriteSize();
+        if (size <= 2) {
+            return;
+        }
+        if (mLayerCache != null) {
+            acquireSharedLayers();
+            //换了一组共享图层时刻度线也作废了，先取到再画进图片
+            if (mScaleLinesDirty) {
+                buildScaleLines();
+            }
+            Bitmap sprite = mSharedLayers.getScaleRingSprite();
+            if (sprite == null) {
+                sprite = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+                drawScaleRingSprite(sprite);
+                sprite = mSharedLayers.putScaleRingSprite(sprite);
+            }
+            mScaleRingSprite = sprite;
+            mScaleRingDirty = false;
+            return;
+        }
+        if (mScaleRingSprite == null || mScaleRingSprite.isRecycled() || mScaleRingSprite.getWidth() != size) {
+            recycleScaleRingSprite();
+            mScaleRingSprite = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        } else {
+            mScaleRingSprite.eraseColor(Color.TRANSPARENT);
+        }
+        drawScaleRingSprite(mScaleRingSprite);
+        mScaleRingDirty = false;
+    }
+
+    /**
+     * 把秒针角度为0时的渐变圆弧和刻度线画到图片中心
+     */
+    private void drawScaleRingSprite(Bitmap sprite) {
+        Canvas canvas = new Canvas(sprite);
+        int size = sprite.getWidth();
+        canvas.translate(size / 2f - mGeometry.getCenterX(), size / 2f - mGeometry.getCenterY());
+        drawScaleRing(canvas, 0);
+    }
+
+    private void recycleScaleRingSprite() {
+        if (mLayerCache != null) {
+            //共享的图片由缓存负责回收
+            mScaleRingSprite = null;
+        } else if (mScaleRingSprite != null) {
+            mScaleRingSprite.recycle();
+            mScaleRingSprite = null;
+        }
+        mScaleRingDirty = true;
+    }
+
+    /**
+     * 释放静态图层占用的内存，下次绘制时重建
+     */
+    private void recycleStaticLayer() {
+        if (mStaticLayer != null) {
+            mStaticLayer.recycle();
+            mStaticLayer = null;
+        }
+        mStaticLayerDirty = true;
+    }
+
+    /**
+     * 把缓存的静态图层画到画布上，此时画布已经关联了camera矩阵
+     */
+    private void drawStaticLayer(Canvas canvas) {
+        if (mAmbient) {
+            //常亮模式每分钟才画一次，直接画省去图层，也不用为灰度颜色另建一份
+            drawTimeText(canvas);
+            return;
+        }
+        if (mStaticLayerDirty) {
+            buildStaticLayer();
+        }
+        if (mStaticLayer != null) {
+            canvas.drawBitmap(mStaticLayer, 0, 0, mStaticLayerPaint);
+        }
+    }
+
+    /**
+     * 画最外圈的时间文本和4个弧线
+     * 这部分内容不随时间变化，只在构建静态图层时绘制一次，文本的位置取排版缓存，不再测量
+     *
+     * @param canvas 静态图层的画布
+     */
+    private void drawTimeText(Canvas canvas) {
+        ClockGeometry g = mGeometry;
+        if (mLod != ClockLod.LOW) {
+            mTextLayout.draw(canvas, g, mTextPaint);
+        }
+
+        //画4个弧
+        for (int i = 0; i < 4; i++) {
+            canvas.drawArc(g.getCircleRect(), 5 + 90 * i, 80, false, mCirclePaint);
+        }
+    }
+
+    /**
+     * 画一圈梯度渲染的亮暗色渐变圆弧，重绘时不断旋转，上面盖一圈背景色的刻度线
+     */
+    private void drawScaleLine(Canvas canvas, float secondDegree, ClockTilt tilt) {
+        canvas.save();
+        canvas.translate(tilt.getCanvasTranslateX(), tilt.getCanvasTranslateY());
+        if (mScaleLinesDirty) {
+            buildScaleLines();
+        }
+        if (mScaleRingCached && !mAmbient) {
+            if (mScaleRingDirty) {
+                buildScaleRingSprite();
+            }
+            if (mScaleRingSprite != null) {
+                //按刻度线间隔取整旋转，旋转后的刻度线与不旋转时重合
+                float degree = secondDegree;
+                if (mLodScaleLineCount > 0) {
+                    float step = 360f / mLodScaleLineCount;
+                    degree = (int) (degree / step) * step;
+                }
+                float cx = mGeometry.getCenterX();
+                float cy = mGeometry.getCenterY();
+                canvas.rotate(degree, cx, cy);
+                canvas.drawBitmap(mScaleRingSprite, cx - mScaleRingSprite.getWidth() / 2f,
+                        cy - mScaleRingSprite.getHeight() / 2f, mStaticLayerPaint);
+            }
+        } else {
+            drawScaleRing(canvas, secondDegree);
+        }
+        canvas.restore();
+    }
+
+    /**
+     * 画渐变圆弧和背景色刻度线
+     *
+     * @param canvas 画布
+     * @param degree 渐变旋转的角度，即秒针角度
+     */
+    private void drawScaleRing(Canvas canvas, float degree) {
+        if (mLod == ClockLod.FULL && !mAmbient) {
+            //matrix默认会在三点钟方向开始颜色的渐变，为了吻合钟表十二点钟顺时针旋转的方向，把秒针旋转的角度减去90度
+            mGradientMatrix.setRotate(degree - 90, mGeometry.getCenterX(), mGeometry.getCenterY());
+            mSweepGradient.setLocalMatrix(mGradientMatrix);
+            mScaleArcPaint.setShader(mSweepGradient);
+            //着色器取代颜色，颜色只提供不透明的alpha
+            mScaleArcPaint.setColor(Color.BLACK);
+        } else {
+            //小尺寸下看不出渐变，常亮模式不着色，都用暗色纯色圆弧
+            mScaleArcPaint.setShader(null);
+            mScaleArcPaint.setColor(displayColor(mDarkColor));
+        }
+        canvas.drawArc(mGeometry.getScaleArcRect(), 0, 360, false, mScaleArcPaint);
+        //画背景色刻度线
+        if (mScaleLinePoints != null) {
+            canvas.drawLines(mScaleLinePoints, 0, mLodScaleLineCount * 4, mScaleLinePaint);
+        }
+    }
+
+    /**
+     * 画秒针，根据不断变化的秒针角度旋转画布
+     */
+    private void drawSecondHand(Canvas canvas, float secondDegree, ClockTilt tilt) {
+        canvas.save();
+        canvas.translate(tilt.getCanvasTranslateX(), tilt.getCanvasTranslateY());
+        canvas.rotate(secondDegree, mGeometry.getCenterX(), mGeometry.getCenterY());
+        canvas.drawPath(mGeometry.getSecondHandPath(), mSecondHandPaint);
+        canvas.restore();
+    }
+
+    /**
+     * 画时针，根据不断变化的时针角度旋转画布
+     * 针头为圆弧状，使用二阶贝塞尔曲线
+     */
+    private void drawHourHand(Canvas canvas, float hourDegree, ClockTilt tilt) {
+        canvas.save();
+        canvas.translate(tilt.getCanvasTranslateX() * 1.2f, tilt.getCanvasTranslateY() * 1.2f);
+        canvas.rotate(hourDegree, mGeometry.getCenterX(), mGeometry.getCenterY());
+        mHourHandPaint.setStyle(Paint.Style.FILL);
+        if (mLod == ClockLod.LOW) {
+            canvas.drawPath(mGeometry.getHourHandSimplePath(), mHourHandPaint);
+            canvas.restore();
+            return;
+        }
+        canvas.drawPath(mGeometry.getHourHandPath(), mHourHandPaint);
+
+        mHourHandPaint.setStyle(Paint.Style.STROKE);
+        mHourHandPaint.setStrokeWidth(mGeometry.getHourHubStrokeWidth());
+        canvas.drawArc(mGeometry.getHubRect(), 0, 360, false, mHourHandPaint);
+        canvas.restore();
+    }
+
+    /**
+     * 画分针，根据不断变化的分针角度旋转画布
+     */
+    private void drawMinuteHand(Canvas canvas, float minuteDegree, ClockTilt tilt) {
+        canvas.save();
+        canvas.translate(tilt.getCanvasTranslateX() * 2f, tilt.getCanvasTranslateY() * 2f);
+        canvas.rotate(minuteDegree, mGeometry.getCenterX(), mGeometry.getCenterY());
+        mMinuteHandPaint.setStyle(Paint.Style.FILL);
+        if (mLod == ClockLod.LOW) {
+            canvas.drawPath(mGeometry.getMinuteHandSimplePath(), mMinuteHandPaint);
+            canvas.restore();
+            return;
+        }
+        canvas.drawPath(mGeometry.getMinuteHandPath(), mMinuteHandPaint);
+
+        mMinuteHandPaint.setStyle(Paint.Style.STROKE);
+        mMinuteHandPaint.setStrokeWidth(mGeometry.getMinuteHubStrokeWidth());
+        canvas.drawArc(mGeometry.getHubRect(), 0, 360, false, mMinuteHandPaint);
+        canvas.restore();
+    }
+}
@@ -0,0 +1,395 @@
+package com.monkey.miclockview;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 表盘皮肤，用数据描述指针轮廓、刻度线数量、各部分与半径的比例和颜色
+ * 皮肤只保存与尺寸无关的描述，由 {@link ClockGeometry} 按 (皮肤, 尺寸) 编译成Path，编译结果缓存共用
+ * 创建后不可修改，按实例区分，同一个资源通过 {@link #load(Context, int)} 总是得到同一个实例
+ *
+ * <p>资源格式为 res/xml 下的一个 clock-skin 元素，所有属性都可省略，省略时与 {@link #CLASSIC} 相同：
+ * <pre>
+ * &lt;clock-skin
+ *     scaleLineCount="200"
+ *     paddingRatio="0.12"
+ *     lightColor="#ffffff"
+ *     secondHand="M0,d0.26 L-0.05,d0.34 L0.05,d0.34 Z" /&gt;
+ * </pre>
+ * 指针轮廓是时针指向12点时的样子，命令有 M（移动）、L（直线）、Q（二阶贝塞尔，控制点和终点）和 Z（闭合），
+ * 每个点写作“x,y”，以半径为单位，向右、向下为正。x相对表盘中心；y以 c 开头时相对表盘中心，
+ * 以 d 开头时相对小时圆圈的顶端，这样指针长度不受小时文本大小影响
+ */
+public final class ClockSkin {
+
+    static final byte OP_MOVE = 0;
+    static final byte OP_LINE = 1;
+    static final byte OP_QUAD = 2;
+    static final byte OP_CLOSE = 3;
+
+    /* 点的纵坐标相对表盘中心 */
+    static final byte ANCHOR_CENTER = 0;
+    /* 点的纵坐标相对小时圆圈的顶端 */
+    static final byte ANCHOR_DIAL = 1;
+
+    /* 资源文件的根元素 */
+    private static final String TAG_SKIN = "clock-skin";
+
+    /* 原来写死在代码中的样子，资源中省略的属性都取这里的值 */
+    private static final Map<String, String> CLASSIC_VALUES;
+
+    static {
+        HashMap<String, String> values = new HashMap<>();
+        values.put("scaleLineCount", String.valueOf(ScaleLineMesh.DEFAULT_COUNT));
+        values.put("paddingRatio", "0.12");
+        values.put("scaleLengthRatio", "0.12");
+        values.put("scaleLineWidthRatio", "0.012");
+        values.put("hubRadiusRatio", "0.03");
+        values.put("hourHubWidthRatio", "0.01");
+        values.put("minuteHubWidthRatio", "0.02");
+        values.put("lightColor", "#ffffff");
+        values.put("darkColor", "#80ffffff");
+        values.put("backgroundColor", "#237ead");
+        values.put("hourHand", "M-0.018,c-0.03 L-0.009,d0.48 Q0,d0.46 0.009,d0.48 L0.018,c-0.03 Z");
+        values.put("minuteHand", "M-0.01,c-0.03 L-0.008,d0.365 Q0,d0.345 0.008,d0.365 L0.01,c-0.03 Z");
+        values.put("secondHand", "M0,d0.26 L-0.05,d0.34 L0.05,d0.34 Z");
+        //最低细节层级用的三角形指针，小尺寸下细针看不清，底边加宽
+        values.put("hourHandSimple", "M-0.04,c0 L0,d0.46 L0.04,c0 Z");
+        values.put("minuteHandSimple", "M-0.03,c0 L0,d0.345 L0.03,c0 Z");
+        CLASSIC_VALUES = Collections.unmodifiableMap(values);
+    }
+
+    /* 经典的小米时钟样子 */
+    public static final ClockSkin CLASSIC = parse("classic", Collections.<String, String>emptyMap());
+
+    /* 按资源id缓存已经加载的皮肤 */
+    private static final HashMap<Integer, ClockSkin> sLoaded = new HashMap<>();
+
+    private final String mName;
+    private final int mScaleLineCount;
+    private final float mPaddingRatio;
+    private final float mScaleLengthRatio;
+    private final float mScaleLineWidthRatio;
+    private final float mHubRadiusRatio;
+    private final float mHourHubWidthRatio;
+    private final float mMinuteHubWidthRatio;
+    private final int mLightColor;
+    private final int mDarkColor;
+    private final int mBackgroundColor;
+    private final Outline mHourHand;
+    private final Outline mMinuteHand;
+    private final Outline mSecondHand;
+    private final Outline mHourHandSimple;
+    private final Outline mMinuteHandSimple;
+
+    private ClockSkin(String name, Map<String, String> values) {
+        for (String key : values.keySet()) {
+            if (!CLASSIC_VALUES.containsKey(key)) {
+                throw new IllegalArgumentException("unknown skin attribute: " + key);
+            }
+        }
+        mName = name;
+        mScaleLineCount = Integer.parseInt(value(values, "scaleLineCount"));
+        if (mScaleLineCount < 0) {
+            throw new IllegalArgumentException("scaleLineCount must be >= 0");
+        }
+        mPaddingRatio = ratio(values, "paddingRatio");
+        mScaleLengthRatio = ratio(values, "scaleLengthRatio");
+        mScaleLineWidthRatio = ratio(values, "scaleLineWidthRatio");
+        mHubRadiusRatio = ratio(values, "hubRadiusRatio");
+        mHourHubWidthRatio = ratio(values, "hourHubWidthRatio");
+        mMinuteHubWidthRatio = ratio(values, "minuteHubWidthRatio");
+        mLightColor = parseColor(value(values, "lightColor"));
+        mDarkColor = parseColor(value(values, "darkColor"));
+        mBackgroundColor = parseColor(value(values, "backgroundColor"));
+        mHourHand = Outline.parse(value(values, "hourHand"));
+        mMinuteHand = Outline.parse(value(values, "minuteHand"));
+        mSecondHand = Outline.parse(value(values, "secondHand"));
+        mHourHandSimple = Outline.parse(value(values, "hourHandSimple"));
+        mMinuteHandSimple = Outline.parse(value(values, "minuteHandSimple"));
+    }
+
+    /**
+     * 从属性值创建皮肤，不依赖资源，可以直接在JVM上测试
+     *
+     * @param name   名字，只用于调试
+     * @param values 属性名和属性值，与资源格式相同，省略的属性取 {@link #CLASSIC} 的值
+     * @return 皮肤
+     * @throws IllegalArgumentException 属性名未知或属性值格式错误
+     */
+    public static ClockSkin parse(String name, Map<String, String> values) {
+        return new ClockSkin(name, values);
+    }
+
+    /**
+     * 从 res/xml 加载皮肤，同一个资源只解析一次
+     * 解析很快，可以在主线程调用，耗时的Path编译见 {@link ClockGeometry#prefetch(ClockGeometry.Spec, Runnable)}
+     *
+     * @param context 上下文
+     * @param resId   皮肤资源的id
+     * @return 皮肤
+     * @throws IllegalArgumentException 资源格式错误
+     */
+    public static ClockSkin load(Context context, int resId) {
+        synchronized (sLoaded) {
+            ClockSkin skin = sLoaded.get(resId);
+            if (skin != null) {
+                return skin;
+            }
+        }
+        Resources res = context.getResources();
+        ClockSkin skin;
+        XmlResourceParser parser = res.getXml(resId);
+        try {
+            int type;
+            do {
+                type = parser.next();
+            } while (type != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT);
+            if (type != XmlPullParser.START_TAG || !TAG_SKIN.equals(parser.getName())) {
+                throw new IllegalArgumentException("expected <" + TAG_SKIN + "> in "
+                        + res.getResourceEntryName(resId));
+            }
+            HashMap<String, String> values = new HashMap<>();
+            for (int i = 0; i < parser.getAttributeCount(); i++) {
+                values.put(parser.getAttributeName(i), parser.getAttributeValue(i));
+            }
+            skin = parse(res.getResourceEntryName(resId), values);
+        } catch (XmlPullParserException e) {
+            throw new IllegalArgumentException("cannot load skin " + res.getResourceEntryName(resId), e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot load skin " + res.getResourceEntryName(resId), e);
+        } finally {
+            parser.close();
+        }
+        synchronized (sLoaded) {
+            //两个线程同时加载时以先放进去的为准，保证同一个资源只有一个实例
+            ClockSkin loaded = sLoaded.get(resId);
+            if (loaded != null) {
+                return loaded;
+            }
+            sLoaded.put(resId, skin);
+            return skin;
+        }
+    }
+
+    private static String value(Map<String, String> values, String key) {
+        String value = values.get(key);
+        return value != null ? value.trim() : CLASSIC_VALUES.get(key);
+    }
+
+    private static float ratio(Map<String, String> values, String key) {
+        float ratio = Float.parseFloat(value(values, key));
+        if (!(ratio >= 0 && ratio < 1)) {
+            throw new IllegalArgumentException(key + " must be in [0, 1): " + ratio);
+        }
+        return ratio;
+    }
+
+    /**
+     * 解析 #RRGGBB 或 #AARRGGBB 格式的颜色，与Color.parseColor相同但不依赖框架
+     */
+    static int parseColor(String color) {
+        if (color.length() < 1 || color.charAt(0) != '#') {
+            throw new IllegalArgumentException("unknown color: " + color);
+        }
+        long value;
+        try {
+            value = Long.parseLong(color.substring(1), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("unknown color: " + color, e);
+        }
+        if (color.length() == 7) {
+            return (int) (value | 0xff000000L);
+        }
+        if (color.length() == 9) {
+            return (int) value;
+        }
+        throw new IllegalArgumentException("unknown color: " + color);
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getScaleLineCount() {
+        return mScaleLineCount;
+    }
+
+    /**
+     * @return 默认padding与半径之比，防止camera旋转时超出画布
+     */
+    public float getPaddingRatio() {
+        return mPaddingRatio;
+    }
+
+    /**
+     * @return 刻度线长度与半径之比，也是渐变圆弧的线宽
+     */
+    public float getScaleLengthRatio() {
+        return mScaleLengthRatio;
+    }
+
+    public float getScaleLineWidthRatio() {
+        return mScaleLineWidthRatio;
+    }
+
+    /**
+     * @return 时针和分针中心圆圈的半径与表盘半径之比
+     */
+    public float getHubRadiusRatio() {
+        return mHubRadiusRatio;
+    }
+
+    public float getHourHubWidthRatio() {
+        return mHourHubWidthRatio;
+    }
+
+    public float getMinuteHubWidthRatio() {
+        return mMinuteHubWidthRatio;
+    }
+
+    public int getLightColor() {
+        return mLightColor;
+    }
+
+    public int getDarkColor() {
+        return mDarkColor;
+    }
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    public Outline getHourHand() {
+        return mHourHand;
+    }
+
+    public Outline getMinuteHand() {
+        return mMinuteHand;
+    }
+
+    public Outline getSecondHand() {
+        return mSecondHand;
+    }
+
+    public Outline getHourHandSimple() {
+        return mHourHandSimple;
+    }
+
+    public Outline getMinuteHandSimple() {
+        return mMinuteHandSimple;
+    }
+
+    @Override
+    public String toString() {
+        return "ClockSkin{" + mName + "}";
+    }
+
+    /**
+     * 解析后的指针轮廓，命令和点按顺序存放在基本类型数组中，编译时顺序读取
+     */
+    public static final class Outline {
+        /* 命令，见 OP_ 开头的常量 */
+        final byte[] ops;
+        /* 各点的坐标，依次为x、y，以半径为单位 */
+        final float[] points;
+        /* 各点纵坐标的基准，见 ANCHOR_ 开头的常量 */
+        final byte[] anchors;
+
+        private Outline(byte[] ops, float[] points, byte[] anchors) {
+            this.ops = ops;
+            this.points = points;
+            this.anchors = anchors;
+        }
+
+        /**
+         * @param path 轮廓，格式见 {@link ClockSkin}
+         * @return 轮廓
+         * @throws IllegalArgumentException 格式错误
+         */
+        static Outline parse(String path) {
+            String[] tokens = path.trim().split("\\s+");
+            //命令数和点数都不会超过记号数
+            byte[] ops = new byte[tokens.length];
+            float[] points = new float[tokens.length * 2];
+            byte[] anchors = new byte[tokens.length];
+            int opCount = 0;
+            int pointCount = 0;
+            int pending = 0;
+            for (String token : tokens) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                char c = token.charAt(0);
+                if (Character.isLetter(c)) {
+                    if (pending > 0) {
+                        throw new IllegalArgumentException("missing point before '" + c + "' in: " + path);
+                    }
+                    byte op = op(c, path);
+                    if (opCount == 0 && op != OP_MOVE) {
+                        throw new IllegalArgumentException("outline must start with M: " + path);
+                    }
+                    ops[opCount++] = op;
+                    pending = op == OP_QUAD ? 2 : op == OP_CLOSE ? 0 : 1;
+                    token = token.substring(1);
+                    if (token.isEmpty()) {
+                        continue;
+                    }
+                }
+                if (pending == 0) {
+                    throw new IllegalArgumentException("unexpected point '" + token + "' in: " + path);
+                }
+                int comma = token.indexOf(',');
+                if (comma <= 0 || comma == token.length() - 1) {
+                    throw new IllegalArgumentException("malformed point '" + token + "' in: " + path);
+                }
+                char anchor = token.charAt(comma + 1);
+                if (anchor != 'c' && anchor != 'd') {
+                    throw new IllegalArgumentException("y must start with c or d: '" + token + "' in: " + path);
+                }
+                try {
+                    points[pointCount * 2] = Float.parseFloat(token.substring(0, comma));
+                    points[pointCount * 2 + 1] = Float.parseFloat(token.substring(comma + 2));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("malformed point '" + token + "' in: " + path, e);
+                }
+                anchors[pointCount] = anchor == 'd' ? ANCHOR_DIAL : ANCHOR_CENTER;
+                pointCount++;
+                pending--;
+            }
+            if (opCount == 0) {
+                throw new IllegalArgumentException("empty outline");
+            }
+            if (pending > 0) {
+                throw new IllegalArgumentException("missing point at end of: " + path);
+            }
+            return new Outline(Arrays.copyOf(ops, opCount), Arrays.copyOf(points, pointCount * 2),
+                    Arrays.copyOf(anchors, pointCount));
+        }
+
+        private static byte op(char c, String path) {
+            switch (c) {
+                case 'M':
+                    return OP_MOVE;
+                case 'L':
+                    return OP_LINE;
+                case 'Q':
+                    return OP_QUAD;
+                case 'Z':
+                    return OP_CLOSE;
+                default:
+                    throw new IllegalArgumentException("unknown command '" + c + "' in: " + path);
+            }
+        }
+    }
+}
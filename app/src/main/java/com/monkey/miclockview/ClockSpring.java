@@ -0,0 +1,125 @@
+package com.monkey.miclockview;
+
+/**
+ * 松手后把倾斜拉回0的阻尼弹簧，位置是手指相对表盘中心的位移与半径之比，见 {@link ClockTilt#setPercent(float, float)}
+ * 用固定步长积分，与刷新率无关：同样的总时间不论分成多少帧，结果都一样
+ * 速度和位置都足够小时直接置为0并停止，不再需要刷新
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public final class ClockSpring {
+
+    /* 默认刚度，自然频率约为2Hz */
+    public static final float DEFAULT_STIFFNESS = 150;
+    /* 默认阻尼比，小于1时来回晃动几次再停下 */
+    public static final float DEFAULT_DAMPING_RATIO = 0.35f;
+
+    /* 积分步长，1/240秒 */
+    static final long STEP_NANOS = 1000000000L / 240;
+    /* 单帧最多推进的时间，避免卡顿或暂停之后一次积分太多步 */
+    private static final long MAX_FRAME_NANOS = 100 * 1000000L;
+    /* 位置小于这个值且速度也足够小时认为已经停下 */
+    private static final float REST_POSITION = 1e-3f;
+    private static final float REST_VELOCITY = 1e-2f;
+
+    private final float mStiffness;
+    private final float mDamping;
+    /* 初速度的上限，使速度带来的位移不超过半径 */
+    private final float mMaxVelocity;
+    private float mX;
+    private float mY;
+    private float mVelocityX;
+    private float mVelocityY;
+    /* 还没有积分的时间 */
+    private long mPendingNanos;
+    private boolean mRunning;
+
+    public ClockSpring() {
+        this(DEFAULT_STIFFNESS, DEFAULT_DAMPING_RATIO);
+    }
+
+    /**
+     * @param stiffness    刚度，大于0
+     * @param dampingRatio 阻尼比，大于0
+     */
+    public ClockSpring(float stiffness, float dampingRatio) {
+        if (stiffness <= 0 || dampingRatio <= 0) {
+            throw new IllegalArgumentException("stiffness and dampingRatio must be > 0");
+        }
+        mStiffness = stiffness;
+        float naturalFrequency = (float) Math.sqrt(stiffness);
+        mDamping = 2 * dampingRatio * naturalFrequency;
+        mMaxVelocity = naturalFrequency;
+    }
+
+    /**
+     * 从松手时的位置和手指速度开始回弹
+     *
+     * @param x         水平位置，与半径之比
+     * @param y         垂直位置，与半径之比
+     * @param velocityX 水平速度，每秒与半径之比
+     * @param velocityY 垂直速度，每秒与半径之比
+     */
+    public void start(float x, float y, float velocityX, float velocityY) {
+        mX = x;
+        mY = y;
+        mVelocityX = clamp(velocityX, mMaxVelocity);
+        mVelocityY = clamp(velocityY, mMaxVelocity);
+        mPendingNanos = 0;
+        mRunning = true;
+    }
+
+    /**
+     * 立即停止，位置和速度置为0
+     */
+    public void cancel() {
+        mX = 0;
+        mY = 0;
+        mVelocityX = 0;
+        mVelocityY = 0;
+        mPendingNanos = 0;
+        mRunning = false;
+    }
+
+    /**
+     * 推进一帧的时间，按固定步长积分，不足一步的时间留到下一帧
+     *
+     * @param elapsedNanos 距离上一帧的时间
+     * @return 是否还在运动，返回false后位置正好为0，不用再请求刷新
+     */
+    public boolean advance(long elapsedNanos) {
+        if (!mRunning) {
+            return false;
+        }
+        mPendingNanos += Math.min(Math.max(0, elapsedNanos), MAX_FRAME_NANOS);
+        float dt = STEP_NANOS / 1e9f;
+        while (mPendingNanos >= STEP_NANOS) {
+            mPendingNanos -= STEP_NANOS;
+            //半隐式欧拉，先更新速度再用新速度更新位置，步长固定时是稳定的
+            mVelocityX += (-mStiffness * mX - mDamping * mVelocityX) * dt;
+            mVelocityY += (-mStiffness * mY - mDamping * mVelocityY) * dt;
+            mX += mVelocityX * dt;
+            mY += mVelocityY * dt;
+        }
+        if (Math.abs(mX) < REST_POSITION && Math.abs(mY) < REST_POSITION
+                && Math.abs(mVelocityX) < REST_VELOCITY && Math.abs(mVelocityY) < REST_VELOCITY) {
+            cancel();
+        }
+        return mRunning;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public float getX() {
+        return mX;
+    }
+
+    public float getY() {
+        return mY;
+    }
+
+    private static float clamp(float value, float max) {
+        return Math.max(-max, Math.min(max, value));
+    }
+}
@@ -0,0 +1,136 @@
+package com.monkey.miclockview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+/**
+ * 小时文本的排版缓存
+ * 字形边界按 (字体, 字号, 文本) 测量一次，绘制原点按几何布局计算一次，都存放在基本类型数组中，
+ * 绘制时直接drawText，不再测量。字号、字体或文本改变只作废这里的缓存，颜色改变不影响
+ */
+final class ClockTextLayout {
+
+    /* 各小时位置文本中心的方向，下标0为12点，依次顺时针 */
+    private static final float[] SIN = new float[ClockNumerals.COUNT];
+    private static final float[] COS = new float[ClockNumerals.COUNT];
+
+    static {
+        for (int i = 0; i < ClockNumerals.COUNT; i++) {
+            double angle = Math.toRadians(i * 360.0 / ClockNumerals.COUNT);
+            SIN[i] = (float) Math.sin(angle);
+            COS[i] = (float) Math.cos(angle);
+        }
+    }
+
+    private ClockNumerals mNumerals = ClockNumerals.CLASSIC;
+    /* 测量时画笔的字体和字号，与画笔当前的不同时重新测量 */
+    private Typeface mTypeface;
+    private float mTextSize;
+    private boolean mMeasured;
+    /* 各位置文本的字形边界，依次为left、top、right、bottom，相对绘制原点和基线 */
+    private final int[] mBounds = new int[ClockNumerals.COUNT * 4];
+    /* 所有文本中最高的高度 */
+    private int mTextHeight;
+    /* 计算绘制原点时的几何布局，几何布局不可修改，按实例判断是否需要重新计算 */
+    private ClockGeometry mLaidOutFor;
+    /* 各位置文本的绘制原点，依次为x、基线y */
+    private final float[] mPositions = new float[ClockNumerals.COUNT * 2];
+    private final Rect mRect = new Rect();
+
+    /**
+     * @param numerals 各位置的文本
+     * @return 是否改变
+     */
+    boolean setNumerals(ClockNumerals numerals) {
+        if (mNumerals.equals(numerals)) {
+            return false;
+        }
+        mNumerals = numerals;
+        mMeasured = false;
+        mLaidOutFor = null;
+        return true;
+    }
+
+    ClockNumerals getNumerals() {
+        return mNumerals;
+    }
+
+    /**
+     * 按画笔当前的字体和字号测量所有文本，已经测量过同样的字体和字号时直接返回
+     *
+     * @param paint 小时文本画笔
+     */
+    void measure(Paint paint) {
+        if (mMeasured && mTextSize == paint.getTextSize() && mTypeface == paint.getTypeface()) {
+            return;
+        }
+        mTextSize = paint.getTextSize();
+        mTypeface = paint.getTypeface();
+        mTextHeight = 0;
+        for (int i = 0; i < ClockNumerals.COUNT; i++) {
+            String label = mNumerals.getLabel(i);
+            if (label == null) {
+                continue;
+            }
+            paint.getTextBounds(label, 0, label.length(), mRect);
+            mBounds[i * 4] = mRect.left;
+            mBounds[i * 4 + 1] = mRect.top;
+            mBounds[i * 4 + 2] = mRect.right;
+            mBounds[i * 4 + 3] = mRect.bottom;
+            mTextHeight = Math.max(mTextHeight, mRect.height());
+        }
+        mMeasured = true;
+        mLaidOutFor = null;
+    }
+
+    /**
+     * @return 所有文本中最高的高度，决定小时圆圈向内缩进的距离，需要先 {@link #measure(Paint)}
+     */
+    int getTextHeight() {
+        return mTextHeight;
+    }
+
+    /**
+     * 计算各文本的绘制原点，使字形边界的中心落在小时圆圈上，同一个几何布局只计算一次
+     *
+     * @param geometry 几何布局
+     */
+    private void layout(ClockGeometry geometry) {
+        if (mLaidOutFor == geometry) {
+            return;
+        }
+        RectF circle = geometry.getCircleRect();
+        float cx = circle.centerX();
+        float cy = circle.centerY();
+        float rx = circle.width() / 2;
+        float ry = circle.height() / 2;
+        for (int i = 0; i < ClockNumerals.COUNT; i++) {
+            float x = cx + rx * SIN[i];
+            float y = cy - ry * COS[i];
+            mPositions[i * 2] = x - (mBounds[i * 4] + mBounds[i * 4 + 2]) / 2f;
+            mPositions[i * 2 + 1] = y - (mBounds[i * 4 + 1] + mBounds[i * 4 + 3]) / 2f;
+        }
+        mLaidOutFor = geometry;
+    }
+
+    /**
+     * 按缓存的位置画出所有文本，字体、字号和几何布局没变时不做任何测量和计算
+     *
+     * @param canvas   画布
+     * @param geometry 几何布局
+     * @param paint    小时文本画笔
+     */
+    void draw(Canvas canvas, ClockGeometry geometry, Paint paint) {
+        measure(paint);
+        layout(geometry);
+        for (int i = 0; i < ClockNumerals.COUNT; i++) {
+            String label = mNumerals.getLabel(i);
+            if (label != null) {
+                canvas.drawText(label, mPositions[i * 2], mPositions[i * 2 + 1], paint);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.monkey.miclockview;
+
+import java.util.ArrayList;
+
+/**
+ * 进程内共用的刷新驱动，同一屏上有很多时钟时使用
+ * 每帧只读一次系统时间，每种走时模式只计算一次角度，再分发给所有注册的时钟，
+ * 角度没有变化的时钟不回调，例如平滑走时的帧里跳秒模式的时钟只在整秒时回调
+ * 因帧率限制跳过的vsync转交给平滑走时的时钟各自的统计，与不共用驱动时一样计数
+ * 只能在主线程使用
+ */
+public final class ClockTickDriver implements FrameScheduler.OnTickListener,
+        FrameScheduler.OnFrameSkippedListener {
+
+    private static final int MODE_COUNT = 3;
+
+    /**
+     * 注册到驱动的时钟
+     */
+    public interface Client {
+        /**
+         * @return 走时模式，见 {@link FrameScheduler#MODE_SMOOTH} 等
+         */
+        int getTickMode();
+
+        /**
+         * @return 平滑走时的最大帧率，小于等于0表示不限制
+         */
+        int getMaxFps();
+
+        /**
+         * 角度变化时回调，angles 由驱动复用，需要保存时复制一份
+         *
+         * @param angles 按该时钟走时模式计算的角度
+         */
+        void onClockTick(ClockAngles angles);
+
+        /**
+         * @return 该时钟的绘制统计，驱动跳过的帧计入其中，为null时不统计
+         */
+        ClockMetrics getMetrics();
+    }
+
+    private static ClockTickDriver sInstance;
+
+    private final ArrayList<Client> mClients = new ArrayList<>();
+    private final FrameScheduler mScheduler = new FrameScheduler(this);
+    private final TimeSource mTimeSource = SystemTimeSource.getDefault();
+    /* 每种走时模式本帧的角度 */
+    private final ClockAngles[] mAngles = new ClockAngles[MODE_COUNT];
+    /* 每种走时模式上一次分发的角度 */
+    private final ClockAngles[] mLastAngles = new ClockAngles[MODE_COUNT];
+    /* 每种走时模式注册的时钟数量 */
+    private final int[] mModeCounts = new int[MODE_COUNT];
+    /* 本帧每种走时模式的角度是否变化 */
+    private final boolean[] mChanged = new boolean[MODE_COUNT];
+
+    private ClockTickDriver() {
+        for (int i = 0; i < MODE_COUNT; i++) {
+            mAngles[i] = new ClockAngles();
+            mLastAngles[i] = new ClockAngles();
+        }
+        mScheduler.setOnFrameSkippedListener(this);
+    }
+
+    public static ClockTickDriver getInstance() {
+        if (sInstance == null) {
+            sInstance = new ClockTickDriver();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 注册时钟并立即回调一次当前角度，已注册时忽略
+     */
+    public void register(Client client) {
+        if (mClients.contains(client)) {
+            return;
+        }
+        mClients.add(client);
+        onClientChanged();
+        int mode = client.getTickMode();
+        mAngles[mode].set(mTimeSource.localTimeMillis(), mode);
+        client.onClockTick(mAngles[mode]);
+    }
+
+    /**
+     * 取消注册，没有时钟时停止调度
+     */
+    public void unregister(Client client) {
+        if (mClients.remove(client)) {
+            onClientChanged();
+        }
+    }
+
+    public boolean isRegistered(Client client) {
+        return mClients.contains(client);
+    }
+
+    /**
+     * 时钟的走时模式或帧率改变后调用，按所有时钟中最密的模式和最高的帧率调度
+     */
+    public void onClientChanged() {
+        int finestMode = FrameScheduler.MODE_MINUTE;
+        int maxFps = -1;
+        for (int i = 0; i < MODE_COUNT; i++) {
+            mModeCounts[i] = 0;
+        }
+        for (int i = 0, size = mClients.size(); i < size; i++) {
+            Client client = mClients.get(i);
+            int mode = client.getTickMode();
+            mModeCounts[mode]++;
+            finestMode = Math.min(finestMode, mode);
+            if (mode == FrameScheduler.MODE_SMOOTH) {
+                int fps = client.getMaxFps();
+                //有一个不限制帧率就不限制
+                maxFps = maxFps == 0 || fps <= 0 ? 0 : Math.max(maxFps, fps);
+            }
+        }
+        if (mClients.isEmpty()) {
+            mScheduler.stop();
+            return;
+        }
+        mScheduler.setMode(finestMode);
+        mScheduler.setMaxFps(Math.max(maxFps, 0));
+        mScheduler.start();
+    }
+
+    @Override
+    public void onTick() {
+        long now = mTimeSource.localTimeMillis();
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            if (mModeCounts[mode] == 0) {
+                mChanged[mode] = false;
+                continue;
+            }
+            mAngles[mode].set(now, mode);
+            mChanged[mode] = !mAngles[mode].sameAs(mLastAngles[mode]);
+            mLastAngles[mode].set(mAngles[mode]);
+        }
+        //倒序遍历，回调中取消注册不影响后续的时钟
+        for (int i = mClients.size() - 1; i >= 0; i--) {
+            if (i >= mClients.size()) {
+                continue;
+            }
+            Client client = mClients.get(i);
+            int mode = client.getTickMode();
+            if (mChanged[mode]) {
+                client.onClockTick(mAngles[mode]);
+            }
+        }
+    }
+
+    @Override
+    public void onFrameSkipped() {
+        //只有平滑走时的时钟自己调度时才会因帧率限制跳帧
+        for (int i = 0, size = mClients.size(); i < size; i++) {
+            Client client = mClients.get(i);
+            ClockMetrics metrics = client.getMetrics();
+            if (metrics != null && client.getTickMode() == FrameScheduler.MODE_SMOOTH) {
+                metrics.onFrameSkipped();
+            }
+        }
+    }
+}
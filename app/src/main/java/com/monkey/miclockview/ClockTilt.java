@@ -0,0 +1,185 @@
+package com.monkey.miclockview;
+
+/**
+ * 时钟的倾斜状态，包括camera绕X、Y轴旋转的角度和指针的位移
+ * 触摸、松手复原都只改写基本类型字段，不分配对象
+ * 触摸可以只记下最新坐标，等绘制前再统一换算，触摸采样率高于刷新率时每帧只算一次
+ */
+public final class ClockTilt {
+
+    /* camera旋转的默认最大角度 */
+    public static final float DEFAULT_MAX_CAMERA_ROTATE = 10;
+
+    /* camera绕X轴旋转的角度 */
+    private float mCameraRotateX;
+    /* camera绕Y轴旋转的角度 */
+    private float mCameraRotateY;
+    /* camera旋转的最大角度 */
+    private float mMaxCameraRotate = DEFAULT_MAX_CAMERA_ROTATE;
+    /* 指针的在x轴的位移 */
+    private float mCanvasTranslateX;
+    /* 指针的在y轴的位移 */
+    private float mCanvasTranslateY;
+    /* 指针的最大位移 */
+    private float mMaxCanvasTranslate;
+    /* 时钟半径 */
+    private float mRadius;
+    /* 当前倾斜对应的手指位移与半径之比 */
+    private float mPercentX;
+    private float mPercentY;
+
+    /* 松手时的倾斜状态，复原动画从这里回到0 */
+    private float mReleaseCameraRotateX;
+    private float mReleaseCameraRotateY;
+    private float mReleaseCanvasTranslateX;
+    private float mReleaseCanvasTranslateY;
+    private float mReleasePercentX;
+    private float mReleasePercentY;
+
+    /* 记下来还没有换算的最新触摸坐标 */
+    private float mPendingTouchX;
+    private float mPendingTouchY;
+    private boolean mTouchPending;
+
+    /**
+     * 尺寸改变时设置时钟半径，指针的最大位移按半径的比例确定
+     *
+     * @param radius 时钟半径
+     */
+    public void setRadius(float radius) {
+        mRadius = radius;
+        mMaxCanvasTranslate = 0.02f * radius;
+    }
+
+    /**
+     * 根据手指相对表盘中心的位置计算camera旋转的大小和指针的位移
+     * 当拨动时钟时，时针、分针、秒针和刻度盘会有一个较小的偏移量，形成近大远小的立体偏移效果
+     *
+     * @param dx 手指x坐标减去中心x坐标
+     * @param dy 手指y坐标减去中心y坐标
+     */
+    public void touch(float dx, float dy) {
+        //求出此时旋转、位移的大小与半径之比，最终的大小按比例匀称改变
+        setPercent(getPercent(dx), getPercent(dy));
+    }
+
+    /**
+     * 按手指位移与半径之比设置camera旋转的大小和指针的位移，用于松手后的弹簧回弹
+     *
+     * @param percentX 水平位移与半径之比
+     * @param percentY 垂直位移与半径之比
+     */
+    public void setPercent(float percentX, float percentY) {
+        mPercentX = percentX;
+        mPercentY = percentY;
+        mCameraRotateX = -percentY * mMaxCameraRotate;
+        mCameraRotateY = percentX * mMaxCameraRotate;
+        mCanvasTranslateX = percentX * mMaxCanvasTranslate;
+        mCanvasTranslateY = percentY * mMaxCanvasTranslate;
+    }
+
+    /**
+     * 只记下手指相对表盘中心的最新位置，同一帧内的多次触摸只保留最后一次
+     * 换算推迟到 {@link #applyPendingTouch()}，由绘制引擎在设置camera旋转前调用
+     *
+     * @param dx 手指x坐标减去中心x坐标
+     * @param dy 手指y坐标减去中心y坐标
+     */
+    public void setTouchPoint(float dx, float dy) {
+        mPendingTouchX = dx;
+        mPendingTouchY = dy;
+        mTouchPending = true;
+    }
+
+    /**
+     * 把记下的最新触摸坐标换算成倾斜状态，没有新的触摸时什么也不做
+     */
+    public void applyPendingTouch() {
+        if (mTouchPending) {
+            mTouchPending = false;
+            touch(mPendingTouchX, mPendingTouchY);
+        }
+    }
+
+    /**
+     * 松开手指，记录此时的倾斜状态作为复原动画的起点
+     * 还有没换算的触摸时先换算，从松手前的最后位置开始复原
+     */
+    public void startRelease() {
+        applyPendingTouch();
+        mReleaseCameraRotateX = mCameraRotateX;
+        mReleaseCameraRotateY = mCameraRotateY;
+        mReleaseCanvasTranslateX = mCanvasTranslateX;
+        mReleaseCanvasTranslateY = mCanvasTranslateY;
+        mReleasePercentX = mPercentX;
+        mReleasePercentY = mPercentY;
+    }
+
+    /**
+     * 按插值进度从松手时的状态复原，0为松手时的状态，1为完全复原
+     *
+     * @param fraction 插值后的进度，晃动时可以超过1
+     */
+    public void updateRelease(float fraction) {
+        float remain = 1 - fraction;
+        mCameraRotateX = mReleaseCameraRotateX * remain;
+        mCameraRotateY = mReleaseCameraRotateY * remain;
+        mCanvasTranslateX = mReleaseCanvasTranslateX * remain;
+        mCanvasTranslateY = mReleaseCanvasTranslateY * remain;
+        mPercentX = mReleasePercentX * remain;
+        mPercentY = mReleasePercentY * remain;
+    }
+
+    /**
+     * 获取一个操作旋转或位移大小的比例，限制在[-1, 1]
+     *
+     * @param value 相对中心的大小
+     * @return 与半径之比
+     */
+    private float getPercent(float value) {
+        if (mRadius <= 0) {
+            return 0;
+        }
+        float percent = value / mRadius;
+        if (percent > 1) {
+            percent = 1;
+        } else if (percent < -1) {
+            percent = -1;
+        }
+        return percent;
+    }
+
+    /**
+     * @return 当前倾斜对应的水平位移与半径之比
+     */
+    public float getPercentX() {
+        return mPercentX;
+    }
+
+    /**
+     * @return 当前倾斜对应的垂直位移与半径之比
+     */
+    public float getPercentY() {
+        return mPercentY;
+    }
+
+    public float getRadius() {
+        return mRadius;
+    }
+
+    public float getCameraRotateX() {
+        return mCameraRotateX;
+    }
+
+    public float getCameraRotateY() {
+        return mCameraRotateY;
+    }
+
+    public float getCanvasTranslateX() {
+        return mCanvasTranslateX;
+    }
+
+    public float getCanvasTranslateY() {
+        return mCanvasTranslateY;
+    }
+}
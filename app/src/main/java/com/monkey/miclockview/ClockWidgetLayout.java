@@ -0,0 +1,55 @@
+package com.monkey.miclockview;
+
+/**
+ * 桌面小部件的尺寸和刷新时间计算
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public final class ClockWidgetLayout {
+
+    /* 一次更新的Bitmap大小上限，Binder事务缓冲区总共约1MB，留出一半给其余数据和多个实例 */
+    public static final int MAX_BITMAP_BYTES = 512 * 1024;
+    /* ARGB_8888 每个像素的字节数 */
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final long MINUTE_MILLIS = 60 * 1000;
+
+    private ClockWidgetLayout() {
+    }
+
+    /**
+     * 计算表盘Bitmap的边长，表盘是圆形，取宽高较小的一边，再按大小上限缩小
+     *
+     * @param widthPx  小部件的实际宽度
+     * @param heightPx 小部件的实际高度
+     * @param maxBytes Bitmap大小上限
+     * @return 正方形Bitmap的边长，小于等于0表示尺寸无效
+     */
+    public static int bitmapSide(int widthPx, int heightPx, int maxBytes) {
+        int side = Math.min(widthPx, heightPx);
+        if (side <= 0) {
+            return 0;
+        }
+        int maxSide = (int) Math.sqrt(maxBytes / BYTES_PER_PIXEL);
+        return Math.min(side, maxSide);
+    }
+
+    /**
+     * dp转px，小部件的尺寸选项以dp为单位
+     */
+    public static int dpToPx(int dp, float density) {
+        return (int) (dp * density + 0.5f);
+    }
+
+    /**
+     * 下一个整分的时间
+     *
+     * @param nowMillis 当前的墙上时间
+     * @return 严格晚于 nowMillis 的下一个整分
+     */
+    public static long nextMinuteBoundary(long nowMillis) {
+        long rem = nowMillis % MINUTE_MILLIS;
+        if (rem < 0) {
+            rem += MINUTE_MILLIS;
+        }
+        return nowMillis - rem + MINUTE_MILLIS;
+    }
+}
@@ -0,0 +1,70 @@
+package com.monkey.miclockview;
+
+import java.util.TimeZone;
+
+/**
+ * 多时区模式下的一组时针和分针，与其他时区共用同一个表盘
+ * 时区偏移由 {@link SystemTimeSource} 缓存，只在夏令时切换时重新计算，每帧换算不分配对象
+ */
+public final class ClockZone {
+
+    private final TimeZone mTimeZone;
+    private final SystemTimeSource mTimeSource;
+    /* 时针颜色 */
+    private final int mHourColor;
+    /* 分针颜色 */
+    private final int mMinuteColor;
+    /* 这个时区当前的指针角度 */
+    private final ClockAngles mAngles = new ClockAngles();
+
+    /**
+     * @param timeZone    时区
+     * @param hourColor   时针颜色
+     * @param minuteColor 分针颜色
+     */
+    public ClockZone(TimeZone timeZone, int hourColor, int minuteColor) {
+        if (timeZone == null) {
+            throw new IllegalArgumentException("timeZone must not be null");
+        }
+        mTimeZone = timeZone;
+        mTimeSource = new SystemTimeSource(timeZone);
+        mHourColor = hourColor;
+        mMinuteColor = minuteColor;
+    }
+
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    public int getHourColor() {
+        return mHourColor;
+    }
+
+    public int getMinuteColor() {
+        return mMinuteColor;
+    }
+
+    /**
+     * @return 最近一次 {@link #update(long, int)} 计算的角度
+     */
+    public ClockAngles getAngles() {
+        return mAngles;
+    }
+
+    /**
+     * 按同一次读取的UTC时间计算这个时区的指针角度
+     *
+     * @param utcMillis UTC时间毫秒数
+     * @param tickMode  走时模式
+     */
+    public void update(long utcMillis, int tickMode) {
+        mAngles.set(mTimeSource.toLocalMillis(utcMillis), tickMode);
+    }
+
+    /**
+     * 系统时间改变后调用，下次换算时重新计算时区偏移
+     */
+    public void onTimeChanged() {
+        mTimeSource.onTimeChanged();
+    }
+}
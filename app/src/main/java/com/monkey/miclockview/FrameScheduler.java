@@ -0,0 +1,255 @@
+package com.monkey.miclockview;
+
+import android.view.Choreographer;
+
+/**
+ * 时钟刷新调度器，基于 Choreographer 按不同的走时模式回调刷新
+ * 必须在同一个带Looper的线程中使用，通常是主线程，也可以是独立的渲染线程
+ */
+public class FrameScheduler implements Choreographer.FrameCallback {
+
+    /* 平滑模式，每个vsync都可能刷新，可以限制最大帧率 */
+    public static final int MODE_SMOOTH = 0;
+    /* 跳秒模式，每秒刷新一次，对齐到整秒 */
+    public static final int MODE_STEPPED = 1;
+    /* 分钟模式，每分钟刷新一次，对齐到整分 */
+    public static final int MODE_MINUTE = 2;
+
+    /* 帧率限制的容差，避免vsync抖动导致本该刷新的帧被跳过 */
+    private static final long FRAME_SLACK_NANOS = 2000000L;
+
+    /**
+     * 刷新回调
+     */
+    public interface OnTickListener {
+        /**
+         * 需要刷新时回调，在调用 start() 的线程执行
+         */
+        void onTick();
+    }
+
+    /**
+     * 因帧率限制跳过vsync时的回调，用于把跳过的帧转交给多个统计
+     */
+    public interface OnFrameSkippedListener {
+        /**
+         * 平滑模式下收到vsync但因为帧率限制没有刷新时回调
+         */
+        void onFrameSkipped();
+    }
+
+    private final OnTickListener mListener;
+    private Choreographer mChoreographer;
+    /* 走时模式 */
+    private int mMode = MODE_SMOOTH;
+    /* 平滑模式的最大帧率，小于等于0表示不限制 */
+    private int mMaxFps;
+    /* 平滑模式下两帧之间的最小间隔 */
+    private long mMinFrameIntervalNanos;
+    /* 上一次回调刷新的帧时间 */
+    private long mLastTickNanos;
+    private boolean mRunning;
+    /* 是否请求了一次不受走时模式限制的刷新，例如触摸和动画 */
+    private boolean mFrameRequested;
+    /* 是否请求了一次不受走时模式限制、但仍受帧率限制的刷新，例如桌面滑动 */
+    private boolean mThrottledFrameRequested;
+    /* 是否正在回调刷新 */
+    private boolean mInFrame;
+    /* 统计因帧率限制跳过的vsync，为null时不统计 */
+    private ClockMetrics mMetrics;
+    /* 因帧率限制跳过vsync时的回调，为null时不回调 */
+    private OnFrameSkippedListener mOnFrameSkippedListener;
+
+    public FrameScheduler(OnTickListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        mListener = listener;
+    }
+
+    /**
+     * 设置走时模式
+     *
+     * @param mode {@link #MODE_SMOOTH}、{@link #MODE_STEPPED} 或 {@link #MODE_MINUTE}
+     */
+    public void setMode(int mode) {
+        if (mode != MODE_SMOOTH && mode != MODE_STEPPED && mode != MODE_MINUTE) {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+        if (mMode == mode) {
+            return;
+        }
+        mMode = mode;
+        if (mRunning) {
+            //重新按新的模式排期
+            removeCallback();
+            scheduleNext();
+        }
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    /**
+     * 设置平滑模式的最大帧率
+     *
+     * @param maxFps 最大帧率，小于等于0表示跟随屏幕刷新率
+     */
+    public void setMaxFps(int maxFps) {
+        mMaxFps = maxFps;
+        mMinFrameIntervalNanos = maxFps > 0 ? 1000000000L / maxFps - FRAME_SLACK_NANOS : 0;
+    }
+
+    public int getMaxFps() {
+        return mMaxFps;
+    }
+
+    /**
+     * 设置统计，平滑模式下因帧率限制跳过的vsync计为跳过的帧
+     *
+     * @param metrics 统计，为null时不统计
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * 设置跳过vsync时的回调，与 {@link #setMetrics(ClockMetrics)} 互不影响
+     *
+     * @param listener 回调，为null时不回调
+     */
+    public void setOnFrameSkippedListener(OnFrameSkippedListener listener) {
+        mOnFrameSkippedListener = listener;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 开始调度，已经开始时忽略
+     */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastTickNanos = 0;
+        scheduleNext();
+    }
+
+    /**
+     * 停止调度，不再回调刷新
+     */
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mFrameRequested = false;
+        mThrottledFrameRequested = false;
+        removeCallback();
+    }
+
+    /**
+     * 请求在下一个vsync额外刷新一次，不受走时模式和帧率限制，之后恢复原来的排期
+     * 用于触摸、动画等需要立即响应的场景，未开始调度时忽略
+     */
+    public void requestFrame() {
+        if (!mRunning || mFrameRequested) {
+            return;
+        }
+        mFrameRequested = true;
+        //回调刷新期间请求的，等回调结束后统一排期
+        if (!mInFrame) {
+            removeCallback();
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 请求尽快额外刷新一次，不受走时模式限制，但与上一帧的间隔仍不小于最大帧率对应的间隔，之后恢复原来的排期
+     * 用于桌面滑动这类事件频率可能高于帧率限制的场景，连续请求最多按最大帧率刷新，未开始调度时忽略
+     */
+    public void requestThrottledFrame() {
+        if (!mRunning || mFrameRequested || mThrottledFrameRequested) {
+            return;
+        }
+        mThrottledFrameRequested = true;
+        if (!mInFrame) {
+            removeCallback();
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        boolean requested = mFrameRequested;
+        boolean throttled = mThrottledFrameRequested;
+        mFrameRequested = false;
+        boolean due = mLastTickNanos == 0 || frameTimeNanos - mLastTickNanos >= mMinFrameIntervalNanos;
+        //受帧率限制的请求没到间隔时保留，下一个vsync再看
+        if (requested || mMode != MODE_SMOOTH && !throttled || due) {
+            mThrottledFrameRequested = false;
+            mLastTickNanos = frameTimeNanos;
+            mInFrame = true;
+            mListener.onTick();
+            mInFrame = false;
+        } else {
+            if (mMetrics != null) {
+                mMetrics.onFrameSkipped();
+            }
+            if (mOnFrameSkippedListener != null) {
+                mOnFrameSkippedListener.onFrameSkipped();
+            }
+        }
+        if (!mRunning) {
+            return;
+        }
+        if (mFrameRequested || mThrottledFrameRequested) {
+            mChoreographer.postFrameCallback(this);
+        } else {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * 按当前模式排期下一次回调，跳秒和分钟模式对齐到墙上时钟的整秒、整分
+     */
+    private void scheduleNext() {
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        switch (mMode) {
+            case MODE_STEPPED:
+                mChoreographer.postFrameCallbackDelayed(this, delayToBoundary(1000));
+                break;
+            case MODE_MINUTE:
+                mChoreographer.postFrameCallbackDelayed(this, delayToBoundary(60 * 1000));
+                break;
+            default:
+                mChoreographer.postFrameCallback(this);
+                break;
+        }
+    }
+
+    private void removeCallback() {
+        if (mChoreographer != null) {
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * 距离下一个整周期边界的毫秒数
+     *
+     * @param periodMillis 周期，整秒为1000，整分为60000
+     * @return 延迟的毫秒数，范围(0, periodMillis]
+     */
+    static long delayToBoundary(long periodMillis) {
+        return periodMillis - System.currentTimeMillis() % periodMillis;
+    }
+}
@@ -0,0 +1,268 @@
+package com.monkey.miclockview;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 流式的GIF动画编码器，每加一帧就编码写出，不在内存中保留之前的帧
+ * 使用固定的6x7x6全局调色板，颜色按算术直接映射，不需要每帧统计颜色
+ * 像素索引、LZW字典和输出缓冲都在构造时分配，之后每帧反复使用
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public final class GifEncoder {
+
+    /* 调色板中红、绿、蓝的级数 */
+    private static final int RED_LEVELS = 6;
+    private static final int GREEN_LEVELS = 7;
+    private static final int BLUE_LEVELS = 6;
+
+    /* 像素索引的位数，也是LZW的最小码长 */
+    private static final int MIN_CODE_SIZE = 8;
+    private static final int CLEAR_CODE = 1 << MIN_CODE_SIZE;
+    private static final int END_CODE = CLEAR_CODE + 1;
+    private static final int FIRST_FREE_CODE = CLEAR_CODE + 2;
+    private static final int MAX_CODE_SIZE = 12;
+    private static final int MAX_CODES = 1 << MAX_CODE_SIZE;
+    /* LZW字典的散列表大小，装载率不超过一半 */
+    private static final int HASH_SIZE = 8192;
+
+    private final OutputStream mOut;
+    private final int mWidth;
+    private final int mHeight;
+    private final byte[] mIndices;
+
+    /* LZW字典，键为前缀码和下一个像素索引，-1表示空位 */
+    private final int[] mHashKeys = new int[HASH_SIZE];
+    private final short[] mHashCodes = new short[HASH_SIZE];
+    private int mNextCode;
+    private int mCodeSize;
+    private boolean mClearPending;
+    /* 还没凑满一个字节的位 */
+    private int mBitBuffer;
+    private int mBitCount;
+    /* 数据子块，最长255字节 */
+    private final byte[] mBlock = new byte[256];
+    private int mBlockLength;
+
+    private boolean mFinished;
+
+    /**
+     * 写出文件头、全局调色板和循环播放的扩展
+     *
+     * @param out       输出流，调用方负责关闭
+     * @param width     宽度
+     * @param height    高度
+     * @param loopCount 循环次数，0表示无限循环
+     */
+    public GifEncoder(OutputStream out, int width, int height, int loopCount) throws IOException {
+        if (width <= 0 || height <= 0 || width > 0xffff || height > 0xffff) {
+            throw new IllegalArgumentException("invalid size: " + width + "x" + height);
+        }
+        mOut = out;
+        mWidth = width;
+        mHeight = height;
+        mIndices = new byte[width * height];
+
+        mOut.write(new byte[]{'G', 'I', 'F', '8', '9', 'a'});
+        writeShort(width);
+        writeShort(height);
+        //有全局调色板，颜色深度8位，调色板256色
+        mOut.write(0xf7);
+        mOut.write(0);
+        mOut.write(0);
+        writePalette();
+
+        mOut.write(0x21);
+        mOut.write(0xff);
+        mOut.write(11);
+        mOut.write(new byte[]{'N', 'E', 'T', 'S', 'C', 'A', 'P', 'E', '2', '.', '0'});
+        mOut.write(3);
+        mOut.write(1);
+        writeShort(loopCount);
+        mOut.write(0);
+    }
+
+    /**
+     * 编码一帧并写出
+     *
+     * @param argb        按行排列的像素，长度为宽乘高，透明度被忽略
+     * @param delayMillis 这一帧显示的时间，GIF的精度为10毫秒
+     */
+    public void addFrame(int[] argb, int delayMillis) throws IOException {
+        if (mFinished) {
+            throw new IllegalStateException("already finished");
+        }
+        if (argb.length < mIndices.length) {
+            throw new IllegalArgumentException("expected " + mIndices.length + " pixels, got " + argb.length);
+        }
+        for (int i = 0; i < mIndices.length; i++) {
+            mIndices[i] = (byte) paletteIndex(argb[i]);
+        }
+
+        //图形控制扩展：保留上一帧，不透明
+        mOut.write(0x21);
+        mOut.write(0xf9);
+        mOut.write(4);
+        mOut.write(0x04);
+        writeShort(Math.max(0, (delayMillis + 5) / 10));
+        mOut.write(0);
+        mOut.write(0);
+
+        //图像描述符：覆盖整个画面，使用全局调色板
+        mOut.write(0x2c);
+        writeShort(0);
+        writeShort(0);
+        writeShort(mWidth);
+        writeShort(mHeight);
+        mOut.write(0);
+
+        writeLzw();
+    }
+
+    /**
+     * 写出文件结尾，之后不能再加帧
+     */
+    public void finish() throws IOException {
+        if (mFinished) {
+            return;
+        }
+        mFinished = true;
+        mOut.write(0x3b);
+        mOut.flush();
+    }
+
+    /**
+     * @param color 颜色
+     * @return 调色板中最接近的颜色的索引
+     */
+    static int paletteIndex(int color) {
+        int r = (((color >> 16) & 0xff) * (RED_LEVELS - 1) + 127) / 255;
+        int g = (((color >> 8) & 0xff) * (GREEN_LEVELS - 1) + 127) / 255;
+        int b = ((color & 0xff) * (BLUE_LEVELS - 1) + 127) / 255;
+        return (r * GREEN_LEVELS + g) * BLUE_LEVELS + b;
+    }
+
+    /**
+     * @param index 调色板索引
+     * @return 调色板中的颜色，不透明
+     */
+    static int paletteColor(int index) {
+        int b = index % BLUE_LEVELS;
+        int g = index / BLUE_LEVELS % GREEN_LEVELS;
+        int r = index / BLUE_LEVELS / GREEN_LEVELS;
+        return 0xff000000 | (r * 255 / (RED_LEVELS - 1)) << 16
+                | (g * 255 / (GREEN_LEVELS - 1)) << 8 | b * 255 / (BLUE_LEVELS - 1);
+    }
+
+    private void writePalette() throws IOException {
+        int used = RED_LEVELS * GREEN_LEVELS * BLUE_LEVELS;
+        byte[] table = new byte[256 * 3];
+        for (int i = 0; i < used; i++) {
+            int color = paletteColor(i);
+            table[i * 3] = (byte) (color >> 16);
+            table[i * 3 + 1] = (byte) (color >> 8);
+            table[i * 3 + 2] = (byte) color;
+        }
+        mOut.write(table);
+    }
+
+    /**
+     * 用可变码长的LZW压缩像素索引，按255字节的数据子块写出
+     */
+    private void writeLzw() throws IOException {
+        mOut.write(MIN_CODE_SIZE);
+        mBitBuffer = 0;
+        mBitCount = 0;
+        mBlockLength = 0;
+        resetTable();
+        mCodeSize = MIN_CODE_SIZE + 1;
+        mClearPending = false;
+        writeCode(CLEAR_CODE);
+
+        int prefix = mIndices[0] & 0xff;
+        for (int i = 1; i < mIndices.length; i++) {
+            int pixel = mIndices[i] & 0xff;
+            int key = (prefix << 8) | pixel;
+            int slot = findSlot(key);
+            if (mHashKeys[slot] == key) {
+                prefix = mHashCodes[slot];
+                continue;
+            }
+            writeCode(prefix);
+            if (mNextCode < MAX_CODES) {
+                mHashKeys[slot] = key;
+                mHashCodes[slot] = (short) mNextCode++;
+            } else {
+                //字典满了，清空重来
+                resetTable();
+                mClearPending = true;
+                writeCode(CLEAR_CODE);
+            }
+            prefix = pixel;
+        }
+        writeCode(prefix);
+        writeCode(END_CODE);
+        if (mBitCount > 0) {
+            writeByte(mBitBuffer & 0xff);
+        }
+        flushBlock();
+        //数据子块结束
+        mOut.write(0);
+    }
+
+    private void resetTable() {
+        Arrays.fill(mHashKeys, -1);
+        mNextCode = FIRST_FREE_CODE;
+    }
+
+    /**
+     * 线性探测，返回键所在的位置，不存在时返回第一个空位
+     */
+    private int findSlot(int key) {
+        int slot = (key * 0x9e3779b1 >>> 19) & (HASH_SIZE - 1);
+        while (mHashKeys[slot] != -1 && mHashKeys[slot] != key) {
+            slot = (slot + 1) & (HASH_SIZE - 1);
+        }
+        return slot;
+    }
+
+    /**
+     * 按当前码长写出一个码，写完后按字典大小调整码长，与解码器同步
+     */
+    private void writeCode(int code) throws IOException {
+        mBitBuffer |= code << mBitCount;
+        mBitCount += mCodeSize;
+        while (mBitCount >= 8) {
+            writeByte(mBitBuffer & 0xff);
+            mBitBuffer >>>= 8;
+            mBitCount -= 8;
+        }
+        if (mClearPending) {
+            mCodeSize = MIN_CODE_SIZE + 1;
+            mClearPending = false;
+        } else if (mCodeSize < MAX_CODE_SIZE && mNextCode > (1 << mCodeSize) - 1) {
+            mCodeSize++;
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        mBlock[mBlockLength++] = (byte) b;
+        if (mBlockLength == 255) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (mBlockLength > 0) {
+            mOut.write(mBlockLength);
+            mOut.write(mBlock, 0, mBlockLength);
+            mBlockLength = 0;
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        mOut.write(value & 0xff);
+        mOut.write((value >> 8) & 0xff);
+    }
+}
@@ -0,0 +1,654 @@
+package com.monkey.miclockview;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.VelocityTracker;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在独立渲染线程上绘制的小米时钟，属性、触摸3D旋转和松手复原效果与 {@link MiClockView} 相同
+ * 主线程卡顿时秒针依然流畅。渲染线程随Surface创建而启动、随Surface销毁而结束，
+ * 触摸坐标通过原子变量交给渲染线程，渲染循环不加锁
+ */
+public class MiClockSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    /* 经典晃动的时长 */
+    private static final long SHAKE_DURATION_NANOS = 1000 * 1000000L;
+
+    /* 时钟绘制引擎，渲染线程启动后只能在渲染线程访问 */
+    private final ClockRenderer mRenderer;
+    /* 是否通过属性或setter单独设置过亮色、暗色、背景色，换皮肤时保留，与绘制引擎一样只在渲染线程访问 */
+    private boolean mLightColorSet;
+    private boolean mDarkColorSet;
+    private boolean mBackgroundColorSet;
+    /* 是否通过属性单独设置过刻度线数量，换皮肤时保留 */
+    private boolean mScaleLineCountSet;
+    /* 走时模式 */
+    private volatile int mTickMode;
+    /* 平滑走时的最大帧率 */
+    private volatile int mMaxFps;
+    /* 松手后复原的方式 */
+    private volatile int mReleaseMode;
+    /* 时间来源 */
+    private volatile TimeSource mTimeSource = SystemTimeSource.getDefault();
+    /* 表盘半径小于这个值时使用中等细节层级，单位px */
+    private volatile float mLodMediumRadius;
+    /* 表盘半径小于这个值时使用最低细节层级，单位px */
+    private volatile float mLodLowRadius;
+
+    /* 最新的触摸坐标，高32位为x、低32位为y的float位 */
+    private final AtomicLong mTouchPoint = new AtomicLong();
+    /* 松手时手指的速度，单位px/s，按触摸坐标的方式打包，在增加松手次数之前写入 */
+    private final AtomicLong mReleaseVelocity = new AtomicLong();
+    /* 手指是否按在时钟上 */
+    private volatile boolean mTouching;
+    /* 松手次数，渲染线程发现变化时开始复原 */
+    private volatile int mReleaseCount;
+    /* 跟踪手指速度，只在主线程访问，按下时从系统的池中取，松手时归还 */
+    private VelocityTracker mVelocityTracker;
+
+    /* 渲染线程 */
+    private RenderThread mRenderThread;
+
+    /* 监听系统时间和时区的改变 */
+    private final BroadcastReceiver mTimeChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mTimeSource.onTimeChanged();
+            requestRender();
+        }
+    };
+
+    public MiClockSurfaceView(Context context) {
+        this(context, null);
+    }
+
+    public MiClockSurfaceView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MiClockSurfaceView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.MiClockView, defStyleAttr, 0);
+        mRenderer = ClockRenderer.fromAttributes(context, ta);
+        mLightColorSet = ta.hasValue(R.styleable.MiClockView_lightColor);
+        mDarkColorSet = ta.hasValue(R.styleable.MiClockView_darkColor);
+        mBackgroundColorSet = ta.hasValue(R.styleable.MiClockView_backgroundColor);
+        mScaleLineCountSet = ta.hasValue(R.styleable.MiClockView_scaleLineCount);
+        mTickMode = ta.getInt(R.styleable.MiClockView_tickMode, FrameScheduler.MODE_SMOOTH);
+        mMaxFps = ta.getInt(R.styleable.MiClockView_maxFps, 0);
+        mReleaseMode = ta.getInt(R.styleable.MiClockView_releaseMode, MiClockView.RELEASE_SPRING);
+        mLodMediumRadius = ta.getDimension(R.styleable.MiClockView_lodMediumRadius,
+                DensityUtils.dp2px(context, ClockLod.DEFAULT_MEDIUM_RADIUS_DP));
+        mLodLowRadius = ta.getDimension(R.styleable.MiClockView_lodLowRadius,
+                DensityUtils.dp2px(context, ClockLod.DEFAULT_LOW_RADIUS_DP));
+        ta.recycle();
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * 设置走时模式，见 {@link MiClockView#setTickMode(int)}
+     *
+     * @param tickMode 走时模式
+     */
+    public void setTickMode(int tickMode) {
+        mTickMode = tickMode;
+        requestRender();
+    }
+
+    public int getTickMode() {
+        return mTickMode;
+    }
+
+    /**
+     * 设置平滑走时模式下的最大帧率
+     *
+     * @param maxFps 最大帧率，小于等于0表示跟随屏幕刷新率
+     */
+    public void setMaxFps(int maxFps) {
+        mMaxFps = maxFps;
+        requestRender();
+    }
+
+    /**
+     * 设置松手后复原的方式，见 {@link MiClockView#setReleaseMode(int)}，从下一次松手开始生效
+     *
+     * @param releaseMode {@link MiClockView#RELEASE_SPRING} 或 {@link MiClockView#RELEASE_SHAKE}
+     */
+    public void setReleaseMode(int releaseMode) {
+        if (releaseMode != MiClockView.RELEASE_SPRING && releaseMode != MiClockView.RELEASE_SHAKE) {
+            throw new IllegalArgumentException("unknown releaseMode: " + releaseMode);
+        }
+        mReleaseMode = releaseMode;
+    }
+
+    public int getReleaseMode() {
+        return mReleaseMode;
+    }
+
+    /**
+     * 设置时间来源，默认跟随系统时间和时区
+     *
+     * @param timeSource 时间来源
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("timeSource must not be null");
+        }
+        mTimeSource = timeSource;
+        requestRender();
+    }
+
+    /**
+     * 设置细节层级的半径阈值，见 {@link MiClockView#setLodThresholds(float, float)}
+     *
+     * @param mediumRadius 使用中等层级的半径阈值，单位px，小于等于0表示不使用
+     * @param lowRadius    使用最低层级的半径阈值，单位px，小于等于0表示不使用
+     */
+    public void setLodThresholds(float mediumRadius, float lowRadius) {
+        mLodMediumRadius = mediumRadius;
+        mLodLowRadius = lowRadius;
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                updateLod();
+            }
+        });
+    }
+
+    /**
+     * 按当前半径选择细节层级，在渲染线程调用
+     */
+    private void updateLod() {
+        mRenderer.setLod(ClockLod.select(mRenderer.getRadius(), mLodMediumRadius, mLodLowRadius));
+    }
+
+    /**
+     * 设置亮色，用于分针、秒针、渐变终止色
+     *
+     * @param lightColor 亮色
+     */
+    public void setLightColor(final int lightColor) {
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                mLightColorSet = true;
+                mRenderer.setLightColor(lightColor);
+            }
+        });
+    }
+
+    /**
+     * 设置暗色，用于圆弧、刻度线、时针、渐变起始色
+     *
+     * @param darkColor 暗色
+     */
+    public void setDarkColor(final int darkColor) {
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                mDarkColorSet = true;
+                mRenderer.setDarkColor(darkColor);
+            }
+        });
+    }
+
+    /**
+     * 设置时钟背景色，同时用于刻度线
+     *
+     * @param color 背景色
+     */
+    @Override
+    public void setBackgroundColor(final int color) {
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                mBackgroundColorSet = true;
+                mRenderer.setBackgroundColor(color);
+            }
+        });
+    }
+
+    /**
+     * 设置小时文本的字体大小
+     *
+     * @param textSize 字体大小，单位px
+     */
+    public void setTextSize(final float textSize) {
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setTextSize(textSize);
+            }
+        });
+    }
+
+    /**
+     * 设置小时文本的字体
+     *
+     * @param typeface 字体，为null时使用默认字体
+     */
+    public void setTypeface(final Typeface typeface) {
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setTypeface(typeface);
+            }
+        });
+    }
+
+    /**
+     * 设置表盘上各小时位置的文本，见 {@link ClockRenderer#setNumerals(ClockNumerals)}
+     *
+     * @param numerals 文本
+     */
+    public void setNumerals(final ClockNumerals numerals) {
+        if (numerals == null) {
+            throw new IllegalArgumentException("numerals must not be null");
+        }
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setNumerals(numerals);
+            }
+        });
+    }
+
+    /**
+     * 设置皮肤，换上皮肤的指针轮廓、比例、刻度线数量和颜色，通过属性或setter单独设置过的颜色、属性中设置的刻度线数量保留不变
+     * 指针路径在后台线程编译好之后才交给渲染线程，渲染线程不会为此停一帧
+     *
+     * @param skin 皮肤，见 {@link ClockSkin#load(Context, int)}
+     */
+    public void setSkin(final ClockSkin skin) {
+        if (skin == null) {
+            throw new IllegalArgumentException("skin must not be null");
+        }
+        final Runnable apply = new Runnable() {
+            @Override
+            public void run() {
+                int scaleLineCount = mRenderer.getScaleLineCount();
+                mRenderer.setSkin(skin);
+                if (mScaleLineCountSet) {
+                    mRenderer.setScaleLineCount(scaleLineCount);
+                }
+                if (!mLightColorSet) {
+                    mRenderer.setLightColor(skin.getLightColor());
+                }
+                if (!mDarkColorSet) {
+                    mRenderer.setDarkColor(skin.getDarkColor());
+                }
+                if (!mBackgroundColorSet) {
+                    mRenderer.setBackgroundColor(skin.getBackgroundColor());
+                }
+            }
+        };
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                ClockGeometry.Spec spec = mRenderer.getSpec(skin);
+                if (spec == null) {
+                    apply.run();
+                    return;
+                }
+                ClockGeometry.prefetch(spec, new Runnable() {
+                    @Override
+                    public void run() {
+                        queueEvent(apply);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在渲染线程修改绘制引擎，渲染线程没有运行时直接在当前线程执行
+     *
+     * @param event 修改绘制引擎的操作
+     */
+    private void queueEvent(Runnable event) {
+        RenderThread thread = mRenderThread;
+        if (thread != null) {
+            thread.queueEvent(event);
+        } else {
+            event.run();
+        }
+    }
+
+    /**
+     * 请求渲染线程尽快绘制一帧
+     */
+    private void requestRender() {
+        RenderThread thread = mRenderThread;
+        if (thread != null) {
+            thread.requestRender();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        getContext().registerReceiver(mTimeChangedReceiver, filter);
+        //离开窗口期间可能错过了广播
+        mTimeSource.onTimeChanged();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getContext().unregisterReceiver(mTimeChangedReceiver);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        mRenderThread = new RenderThread(holder);
+        mRenderThread.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, final int width, final int height) {
+        final int paddingLeft = getPaddingLeft();
+        final int paddingTop = getPaddingTop();
+        final int paddingRight = getPaddingRight();
+        final int paddingBottom = getPaddingBottom();
+        final RenderThread thread = mRenderThread;
+        if (thread == null) {
+            return;
+        }
+        thread.queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                thread.setSize(width, height, paddingLeft, paddingTop, paddingRight, paddingBottom);
+            }
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        //返回之后Surface就不能再用了，必须等渲染线程退出
+        RenderThread thread = mRenderThread;
+        mRenderThread = null;
+        if (thread != null) {
+            thread.quitAndWait();
+        }
+        mRenderer.release();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                if (mVelocityTracker == null) {
+                    mVelocityTracker = VelocityTracker.obtain();
+                } else {
+                    mVelocityTracker.clear();
+                }
+                mVelocityTracker.addMovement(event);
+                mTouchPoint.set(packPoint(event.getX() - getWidth() / 2, event.getY() - getHeight() / 2));
+                mTouching = true;
+                requestRender();
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.addMovement(event);
+                }
+                mTouchPoint.set(packPoint(event.getX() - getWidth() / 2, event.getY() - getHeight() / 2));
+                mTouching = true;
+                requestRender();
+                break;
+            case MotionEvent.ACTION_UP:
+                //松开手指，时钟按手指速度复原
+                float velocityX = 0;
+                float velocityY = 0;
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.addMovement(event);
+                    mVelocityTracker.computeCurrentVelocity(1000);
+                    velocityX = mVelocityTracker.getXVelocity();
+                    velocityY = mVelocityTracker.getYVelocity();
+                }
+                recycleVelocityTracker();
+                release(velocityX, velocityY);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                //手势被父View拦截时同样复原，否则渲染线程会一直停在倾斜状态逐帧绘制
+                recycleVelocityTracker();
+                release(0, 0);
+                break;
+        }
+        return true;
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * 把松手速度交给渲染线程，由渲染线程开始复原
+     *
+     * @param velocityX 松手时手指的水平速度，单位px/s
+     * @param velocityY 松手时手指的垂直速度，单位px/s
+     */
+    private void release(float velocityX, float velocityY) {
+        mReleaseVelocity.set(packPoint(velocityX, velocityY));
+        mTouching = false;
+        mReleaseCount++;
+        requestRender();
+    }
+
+    private static long packPoint(float x, float y) {
+        return ((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xffffffffL);
+    }
+
+    private static float unpackX(long point) {
+        return Float.intBitsToFloat((int) (point >> 32));
+    }
+
+    private static float unpackY(long point) {
+        return Float.intBitsToFloat((int) point);
+    }
+
+    /**
+     * 渲染线程，自带Looper，用该线程的Choreographer按vsync节奏绘制
+     */
+    private class RenderThread extends HandlerThread implements FrameScheduler.OnTickListener,
+            Handler.Callback {
+
+        private static final int MSG_START = 0;
+        private static final int MSG_REQUEST_RENDER = 1;
+
+        private final SurfaceHolder mHolder;
+        /* 以下字段只在渲染线程访问 */
+        private Handler mHandler;
+        private FrameScheduler mScheduler;
+        private final ClockTilt mTilt = new ClockTilt();
+        private final ClockAngles mAngles = new ClockAngles();
+        private final ShakeInterpolator mShakeInterpolator = new ShakeInterpolator();
+        private final ClockSpring mSpring = new ClockSpring();
+        private int mLastReleaseCount;
+        /* 正在进行的复原使用的方式，松手时确定，复原期间修改设置不影响 */
+        private int mRunningReleaseMode;
+        private boolean mReleasing;
+        private long mReleaseStartNanos;
+        private long mLastReleaseNanos;
+
+        /* 是否已有待处理的绘制请求，合并同一帧内的多次请求 */
+        private final AtomicBoolean mRenderRequested = new AtomicBoolean();
+
+        RenderThread(SurfaceHolder holder) {
+            super("MiClockRender", Process.THREAD_PRIORITY_DISPLAY);
+            mHolder = holder;
+        }
+
+        @Override
+        public synchronized void start() {
+            super.start();
+            //getLooper会等待Looper准备好，保证之后queueEvent可以直接投递
+            mHandler = new Handler(getLooper(), this);
+            mHandler.sendEmptyMessage(MSG_START);
+        }
+
+        void queueEvent(Runnable event) {
+            mHandler.post(event);
+            requestRender();
+        }
+
+        void requestRender() {
+            if (mRenderRequested.compareAndSet(false, true)) {
+                mHandler.sendEmptyMessage(MSG_REQUEST_RENDER);
+            }
+        }
+
+        /**
+         * 退出渲染线程并等待，在主线程调用
+         */
+        void quitAndWait() {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mScheduler.stop();
+                    quit();
+                }
+            });
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void setSize(int width, int height, int paddingLeft, int paddingTop, int paddingRight, int paddingBottom) {
+            mRenderer.setSize(width, height, paddingLeft, paddingTop, paddingRight, paddingBottom);
+            mTilt.setRadius(mRenderer.getRadius());
+            //尺寸确定后才知道半径，在渲染线程选择细节层级
+            updateLod();
+        }
+
+        @Override
+        public boolean handleMessage(Message msg) {
+            switch (msg.what) {
+                case MSG_START:
+                    //FrameScheduler使用创建它的线程的Choreographer，即vsync驱动的渲染线程
+                    mScheduler = new FrameScheduler(this);
+                    mScheduler.setMode(mTickMode);
+                    mScheduler.setMaxFps(mMaxFps);
+                    mScheduler.start();
+                    return true;
+                case MSG_REQUEST_RENDER:
+                    mRenderRequested.set(false);
+                    mScheduler.setMode(mTickMode);
+                    mScheduler.setMaxFps(mMaxFps);
+                    mScheduler.requestFrame();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public void onTick() {
+            long now = System.nanoTime();
+            updateTilt(now);
+            mAngles.set(mTimeSource.localTimeMillis(), mScheduler.getMode());
+            Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                    ? mHolder.lockHardwareCanvas() : mHolder.lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.drawColor(mRenderer.getBackgroundColor());
+                mRenderer.draw(canvas, mAngles, mTilt);
+            } finally {
+                mHolder.unlockCanvasAndPost(canvas);
+            }
+            //按住不动时不重绘，按下和移动事件各自会请求一帧，只有复原动画需要逐帧推进
+            if (mReleasing) {
+                mScheduler.requestFrame();
+            }
+        }
+
+        /**
+         * 读取主线程交过来的最新触摸状态，更新倾斜和复原
+         */
+        private void updateTilt(long now) {
+            int releaseCount = mReleaseCount;
+            if (mTouching) {
+                long point = mTouchPoint.get();
+                mTilt.touch(unpackX(point), unpackY(point));
+                mReleasing = false;
+                mSpring.cancel();
+                mLastReleaseCount = releaseCount;
+            } else if (releaseCount != mLastReleaseCount) {
+                //先用松手前的最后位置更新倾斜，再从这里开始复原
+                long point = mTouchPoint.get();
+                mTilt.touch(unpackX(point), unpackY(point));
+                mLastReleaseCount = releaseCount;
+                startRelease(mReleaseVelocity.get(), now);
+            }
+            if (mReleasing) {
+                updateRelease(now);
+            }
+        }
+
+        /**
+         * 从当前的倾斜状态开始复原，弹簧的初速度为手指速度换算成的每秒半径百分比
+         */
+        private void startRelease(long velocity, long now) {
+            mTilt.startRelease();
+            mRunningReleaseMode = mReleaseMode;
+            if (mRunningReleaseMode == MiClockView.RELEASE_SPRING) {
+                float radius = mTilt.getRadius();
+                if (radius > 0) {
+                    mSpring.start(mTilt.getPercentX(), mTilt.getPercentY(),
+                            unpackX(velocity) / radius, unpackY(velocity) / radius);
+                } else {
+                    mSpring.start(0, 0, 0, 0);
+                }
+            }
+            mReleasing = true;
+            mReleaseStartNanos = now;
+            mLastReleaseNanos = now;
+        }
+
+        /**
+         * 推进一帧复原，停下后倾斜正好为0
+         */
+        private void updateRelease(long now) {
+            if (mRunningReleaseMode == MiClockView.RELEASE_SPRING) {
+                mReleasing = mSpring.advance(now - mLastReleaseNanos);
+                mTilt.setPercent(mSpring.getX(), mSpring.getY());
+            } else {
+                float fraction = (float) (now - mReleaseStartNanos) / SHAKE_DURATION_NANOS;
+                mReleasing = fraction < 1;
+                mTilt.updateRelease(mShakeInterpolator.getInterpolation(Math.min(fraction, 1)));
+            }
+            mLastReleaseNanos = now;
+        }
+    }
+}
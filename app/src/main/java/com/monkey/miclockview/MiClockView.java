@@ -1,110 +1,120 @@
 package com.monkey.miclockview;
 
-import android.animation.PropertyValuesHolder;
-import android.animation.TimeInterpolator;
-import android.animation.ValueAnimator;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.res.TypedArray;
-import android.graphics.Camera;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.graphics.SweepGradient;
+import android.graphics.Typeface;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 
-import java.util.Calendar;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 仿小米时钟
+ * 绘制由 {@link ClockRenderer} 完成，View只负责属性、触摸、动画和刷新调度
  */
 public class MiClockView extends View {
 
-    /* 画布 */
-    private Canvas mCanvas;
-    /* 小时文本画笔 */
-    private Paint mTextPaint;
-    /* 测量小时文本宽高的矩形 */
-    private Rect mTextRect;
-    /* 小时圆圈画笔 */
-    private Paint mCirclePaint;
-    /* 小时圆圈线条宽度 */
-    private float mCircleStrokeWidth = 2;
-    /* 小时圆圈的外接矩形 */
-    private RectF mCircleRectF;
-    /* 刻度圆弧画笔 */
-    private Paint mScaleArcPaint;
-    /* 刻度圆弧的外接矩形 */
-    private RectF mScaleArcRectF;
-    /* 刻度线画笔 */
-    private Paint mScaleLinePaint;
-    /* 时针画笔 */
-    private Paint mHourHandPaint;
-    /* 分针画笔 */
-    private Paint mMinuteHandPaint;
-    /* 秒针画笔 */
-    private Paint mSecondHandPaint;
-    /* 时针路径 */
-    private Path mHourHandPath;
-    /* 分针路径 */
-    private Path mMinuteHandPath;
-    /* 秒针路径 */
-    private Path mSecondHandPath;
-
-    /* 亮色，用于分针、秒针、渐变终止色 */
-    private int mLightColor;
-    /* 暗色，圆弧、刻度线、时针、渐变起始色 */
-    private int mDarkColor;
-    /* 背景色 */
-    private int mBackgroundColor;
-    /* 小时文本字体大小 */
-    private float mTextSize;
-    /* 时钟半径，不包括padding值 */
-    private float mRadius;
-    /* 刻度线长度 */
-    private float mScaleLength;
-
-    /* 时针角度 */
-    private float mHourDegree;
-    /* 分针角度 */
-    private float mMinuteDegree;
-    /* 秒针角度 */
-    private float mSecondDegree;
-
-    /* 加一个默认的padding值，为了防止用camera旋转时钟时造成四周超出view大小 */
-    private float mDefaultPadding;
-    private float mPaddingLeft;
-    private float mPaddingTop;
-    private float mPaddingRight;
-    private float mPaddingBottom;
-
-    /* 梯度扫描渐变 */
-    private SweepGradient mSweepGradient;
-    /* 渐变矩阵，作用在SweepGradient */
-    private Matrix mGradientMatrix;
-    /* 触摸时作用在Camera的矩阵 */
-    private Matrix mCameraMatrix;
-    /* 照相机，用于旋转时钟实现3D效果 */
-    private Camera mCamera;
-    /* camera绕X轴旋转的角度 */
-    private float mCameraRotateX;
-    /* camera绕Y轴旋转的角度 */
-    private float mCameraRotateY;
-    /* camera旋转的最大角度 */
-    private float mMaxCameraRotate = 10;
-    /* 指针的在x轴的位移 */
-    private float mCanvasTranslateX;
-    /* 指针的在y轴的位移 */
-    private float mCanvasTranslateY;
-    /* 指针的最大位移 */
-    private float mMaxCanvasTranslate;
-    /* 手指松开时时钟晃动的动画 */
-    private ValueAnimator mShakeAnim;
+    /* 松手后按手指速度用弹簧回弹 */
+    public static final int RELEASE_SPRING = 0;
+    /* 松手后按经典的衰减正弦曲线晃动1秒 */
+    public static final int RELEASE_SHAKE = 1;
+
+    /* 经典晃动的时长 */
+    private static final long SHAKE_DURATION_NANOS = 1000 * 1000000L;
+
+    /* 时钟绘制引擎 */
+    private ClockRenderer mRenderer;
+    /* 触摸时camera旋转的角度和指针的位移 */
+    private final ClockTilt mTilt = new ClockTilt();
+    /* 松手后复原的方式 */
+    private int mReleaseMode = RELEASE_SPRING;
+    /* 松手后回弹的弹簧 */
+    private final ClockSpring mSpring = new ClockSpring();
+    /* 经典晃动的插值器 */
+    private final ShakeInterpolator mShakeInterpolator = new ShakeInterpolator();
+    /* 跟踪手指速度，按下时从系统的池中取，松手时归还 */
+    private VelocityTracker mVelocityTracker;
+    /* 是否正在松手复原，复原期间每帧在onDraw中推进并请求下一帧 */
+    private boolean mReleasing;
+    /* 经典晃动开始的时间 */
+    private long mReleaseStartNanos;
+    /* 上一帧推进复原的时间 */
+    private long mLastReleaseNanos;
+    /* 刷新调度器，不可见或离开窗口时自动暂停 */
+    private FrameScheduler mFrameScheduler;
+    /* 时间来源 */
+    private TimeSource mTimeSource = SystemTimeSource.getDefault();
+    /* 时分秒针角度的计算 */
+    private final ClockAngles mClockAngles = new ClockAngles();
+    /* 多时区模式下各时区的时针和分针，为空时只显示本地时间 */
+    private ClockZone[] mZones = new ClockZone[0];
+    /* 表盘半径小于这个值时使用中等细节层级，单位px */
+    private float mLodMediumRadius;
+    /* 表盘半径小于这个值时使用最低细节层级，单位px */
+    private float mLodLowRadius;
+    /* 是否处于常亮模式 */
+    private boolean mAmbient;
+    /* 宿主设置的走时模式，常亮模式下调度器临时改为每分钟刷新，退出后恢复 */
+    private int mTickMode;
+    /* 常亮模式下防烧屏位移的最大距离，单位px */
+    private int mBurnInShift;
+    /* 绘制开销的统计，为null时不统计 */
+    private ClockMetrics mMetrics;
+    /* 正在后台编译、还没换上的皮肤，连续切换时只换最后一个 */
+    private ClockSkin mPendingSkin;
+    /* 是否通过属性或setter单独设置过亮色、暗色、背景色，换皮肤时保留单独设置的颜色 */
+    private boolean mLightColorSet;
+    private boolean mDarkColorSet;
+    private boolean mBackgroundColorSet;
+    /* 是否通过属性或setter单独设置过刻度线数量，换皮肤时保留 */
+    private boolean mScaleLineCountSet;
+    /* 是否由进程内共用的驱动统一刷新 */
+    private boolean mSharedTick;
+    /* 当前是否已注册到共用驱动，与驱动中的列表保持一致，每帧判断时不用遍历列表 */
+    private boolean mSharedTickRegistered;
+    /* 注册到共用驱动时的回调，角度由驱动算好后分发 */
+    private final ClockTickDriver.Client mTickClient = new ClockTickDriver.Client() {
+        @Override
+        public int getTickMode() {
+            return mFrameScheduler.getMode();
+        }
+
+        @Override
+        public int getMaxFps() {
+            return mFrameScheduler.getMaxFps();
+        }
+
+        @Override
+        public void onClockTick(ClockAngles angles) {
+            mClockAngles.set(angles);
+            invalidate();
+        }
+
+        @Override
+        public ClockMetrics getMetrics() {
+            return mMetrics;
+        }
+    };
+    /* 监听系统时间和时区的改变 */
+    private final BroadcastReceiver mTimeChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mTimeSource.onTimeChanged();
+            for (ClockZone zone : mZones) {
+                zone.onTimeChanged();
+            }
+            getTimeDegree();
+            invalidate();
+        }
+    };
 
     public MiClockView(Context context) {
         this(context, null);
@@ -117,51 +127,396 @@ public class MiClockView extends View {
     public MiClockView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
         TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.MiClockView, defStyleAttr, 0);
-        mBackgroundColor = ta.getColor(R.styleable.MiClockView_backgroundColor, Color.parseColor("#237EAD"));
-        setBackgroundColor(mBackgroundColor);
-        mLightColor = ta.getColor(R.styleable.MiClockView_lightColor, Color.parseColor("#ffffff"));
-        mDarkColor = ta.getColor(R.styleable.MiClockView_darkColor, Color.parseColor("#80ffffff"));
-        mTextSize = ta.getDimension(R.styleable.MiClockView_textSize, DensityUtils.sp2px(context, 14));
+        mRenderer = ClockRenderer.fromAttributes(context, ta);
+        applyBackgroundColor(mRenderer.getBackgroundColor());
+        mLightColorSet = ta.hasValue(R.styleable.MiClockView_lightColor);
+        mDarkColorSet = ta.hasValue(R.styleable.MiClockView_darkColor);
+        mBackgroundColorSet = ta.hasValue(R.styleable.MiClockView_backgroundColor);
+        mScaleLineCountSet = ta.hasValue(R.styleable.MiClockView_scaleLineCount);
+        int tickMode = ta.getInt(R.styleable.MiClockView_tickMode, FrameScheduler.MODE_SMOOTH);
+        int maxFps = ta.getInt(R.styleable.MiClockView_maxFps, 0);
+        mSharedTick = ta.getBoolean(R.styleable.MiClockView_sharedTick, false);
+        mReleaseMode = ta.getInt(R.styleable.MiClockView_releaseMode, RELEASE_SPRING);
+        mLodMediumRadius = ta.getDimension(R.styleable.MiClockView_lodMediumRadius,
+                DensityUtils.dp2px(context, ClockLod.DEFAULT_MEDIUM_RADIUS_DP));
+        mLodLowRadius = ta.getDimension(R.styleable.MiClockView_lodLowRadius,
+                DensityUtils.dp2px(context, ClockLod.DEFAULT_LOW_RADIUS_DP));
         ta.recycle();
+        mTickMode = tickMode;
+        mBurnInShift = DensityUtils.dp2px(context, ClockAmbient.DEFAULT_BURN_IN_SHIFT_DP);
+
+        mFrameScheduler = new FrameScheduler(new FrameScheduler.OnTickListener() {
+            @Override
+            public void onTick() {
+                invalidate();
+            }
+        });
+        mFrameScheduler.setMode(tickMode);
+        mFrameScheduler.setMaxFps(maxFps);
+    }
+
+    /**
+     * 设置亮色，用于分针、秒针、渐变终止色
+     *
+     * @param lightColor 亮色
+     */
+    public void setLightColor(int lightColor) {
+        mLightColorSet = true;
+        mRenderer.setLightColor(lightColor);
+        invalidate();
+    }
+
+    /**
+     * 设置暗色，用于圆弧、刻度线、时针、渐变起始色
+     *
+     * @param darkColor 暗色
+     */
+    public void setDarkColor(int darkColor) {
+        mDarkColorSet = true;
+        mRenderer.setDarkColor(darkColor);
+        invalidate();
+    }
+
+    /**
+     * 设置时钟背景色，同时用于刻度线
+     *
+     * @param color 背景色
+     */
+    @Override
+    public void setBackgroundColor(int color) {
+        mBackgroundColorSet = true;
+        applyBackgroundColor(color);
+    }
+
+    private void applyBackgroundColor(int color) {
+        super.setBackgroundColor(color);
+        //构造方法中设置背景色时引擎还没创建
+        if (mRenderer != null) {
+            mRenderer.setBackgroundColor(color);
+            invalidate();
+        }
+    }
+
+    /**
+     * 设置小时文本的字体大小
+     *
+     * @param textSize 字体大小，单位px
+     */
+    public void setTextSize(float textSize) {
+        mRenderer.setTextSize(textSize);
+        invalidate();
+    }
+
+    /**
+     * 设置小时文本的字体
+     *
+     * @param typeface 字体，为null时使用默认字体
+     */
+    public void setTypeface(Typeface typeface) {
+        mRenderer.setTypeface(typeface);
+        invalidate();
+    }
+
+    public Typeface getTypeface() {
+        return mRenderer.getTypeface();
+    }
+
+    /**
+     * 设置表盘上各小时位置的文本，见 {@link ClockRenderer#setNumerals(ClockNumerals)}
+     *
+     * @param numerals 文本，例如 {@link ClockNumerals#ARABIC}、{@link ClockNumerals#ROMAN}
+     */
+    public void setNumerals(ClockNumerals numerals) {
+        mRenderer.setNumerals(numerals);
+        invalidate();
+    }
+
+    public ClockNumerals getNumerals() {
+        return mRenderer.getNumerals();
+    }
+
+    /**
+     * 设置刻度线数量
+     *
+     * @param scaleLineCount 一圈刻度线的数量
+     */
+    public void setScaleLineCount(int scaleLineCount) {
+        mScaleLineCountSet = true;
+        mRenderer.setScaleLineCount(scaleLineCount);
+        invalidate();
+    }
+
+    /**
+     * 设置皮肤，换上皮肤的指针轮廓、比例、刻度线数量和颜色，通过属性或setter单独设置过的颜色和刻度线数量保留不变
+     * 当前尺寸下的指针路径在后台线程编译，编译好后才换上，切换时不卡顿；没有尺寸或已经编译过时立即换上
+     *
+     * @param skin 皮肤，见 {@link ClockSkin#load(Context, int)}
+     */
+    public void setSkin(final ClockSkin skin) {
+        if (skin == null) {
+            throw new IllegalArgumentException("skin must not be null");
+        }
+        mPendingSkin = skin;
+        ClockGeometry.Spec spec = mRenderer.getSpec(skin);
+        if (spec == null) {
+            applySkin(skin);
+            return;
+        }
+        ClockGeometry.prefetch(spec, new Runnable() {
+            @Override
+            public void run() {
+                //编译期间又换了皮肤时丢掉这次的结果
+                if (mPendingSkin == skin) {
+                    applySkin(skin);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 当前显示的皮肤，后台编译中的皮肤换上之前仍返回之前的
+     */
+    public ClockSkin getSkin() {
+        return mRenderer.getSkin();
+    }
+
+    private void applySkin(ClockSkin skin) {
+        mPendingSkin = null;
+        int scaleLineCount = mRenderer.getScaleLineCount();
+        mRenderer.setSkin(skin);
+        if (mScaleLineCountSet) {
+            mRenderer.setScaleLineCount(scaleLineCount);
+        }
+        if (!mLightColorSet) {
+            mRenderer.setLightColor(skin.getLightColor());
+        }
+        if (!mDarkColorSet) {
+            mRenderer.setDarkColor(skin.getDarkColor());
+        }
+        if (!mBackgroundColorSet) {
+            applyBackgroundColor(skin.getBackgroundColor());
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置走时模式
+     *
+     * @param tickMode {@link FrameScheduler#MODE_SMOOTH} 平滑走时，
+     *                 {@link FrameScheduler#MODE_STEPPED} 每秒跳一次，
+     *                 {@link FrameScheduler#MODE_MINUTE} 每分钟刷新一次
+     */
+    public void setTickMode(int tickMode) {
+        if (mAmbient) {
+            //常亮模式下只记下来，退出时生效
+            mTickMode = tickMode;
+            return;
+        }
+        mFrameScheduler.setMode(tickMode);
+        mTickMode = tickMode;
+        onTickSettingsChanged();
+        invalidate();
+    }
+
+    public int getTickMode() {
+        return mTickMode;
+    }
+
+    /**
+     * 设置松手后复原的方式
+     *
+     * @param releaseMode {@link #RELEASE_SPRING} 按手指速度弹簧回弹，
+     *                    {@link #RELEASE_SHAKE} 经典的衰减正弦晃动
+     */
+    public void setReleaseMode(int releaseMode) {
+        if (releaseMode != RELEASE_SPRING && releaseMode != RELEASE_SHAKE) {
+            throw new IllegalArgumentException("unknown releaseMode: " + releaseMode);
+        }
+        mReleaseMode = releaseMode;
+    }
+
+    public int getReleaseMode() {
+        return mReleaseMode;
+    }
+
+    /**
+     * 设置常亮模式，用于息屏显示等低功耗场景，见 {@link ClockRenderer#setAmbient(boolean)}
+     * 常亮模式下背景改为黑色，只在分钟变化时重绘，每分钟把整个表盘移动1px防止烧屏，不响应触摸
+     * 进出常亮模式不创建新的画笔和路径
+     *
+     * @param ambient 是否常亮模式
+     */
+    public void setAmbient(boolean ambient) {
+        if (mAmbient == ambient) {
+            return;
+        }
+        mAmbient = ambient;
+        if (ambient) {
+            //回到不倾斜的状态，常亮时不再有动画
+            cancelRelease();
+            recycleVelocityTracker();
+            mTilt.startRelease();
+            mTilt.updateRelease(1);
+        }
+        mRenderer.setAmbient(ambient);
+        mFrameScheduler.setMode(ambient ? FrameScheduler.MODE_MINUTE : mTickMode);
+        onTickSettingsChanged();
+        invalidate();
+    }
+
+    public boolean isAmbient() {
+        return mAmbient;
+    }
+
+    /**
+     * 设置常亮模式下防烧屏位移的最大距离
+     *
+     * @param shift 最大距离，单位px，小于等于0表示不位移
+     */
+    public void setBurnInShift(int shift) {
+        mBurnInShift = shift;
+        if (mAmbient) {
+            invalidate();
+        }
+    }
+
+    public int getBurnInShift() {
+        return mBurnInShift;
+    }
+
+    /**
+     * 设置时间来源，默认跟随系统时间和时区
+     *
+     * @param timeSource 时间来源
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("timeSource must not be null");
+        }
+        mTimeSource = timeSource;
+        //共用驱动只读系统时间，换了时间来源后需要重新决定由谁刷新
+        updateFrameScheduler();
+        invalidate();
+    }
+
+    public TimeSource getTimeSource() {
+        return mTimeSource;
+    }
 
-        mHourHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mHourHandPaint.setStyle(Paint.Style.FILL);
-        mHourHandPaint.setColor(mDarkColor);
+    /**
+     * 设置多时区模式，所有时区共用一个表盘和秒针，每个时区画一组自己颜色的时针和分针
+     * 秒针和渐变圆弧仍然跟随 {@link #setTimeSource(TimeSource)}
+     *
+     * @param zones 各时区，为null或空时只显示本地时间
+     */
+    public void setTimeZones(List<ClockZone> zones) {
+        mZones = zones == null ? new ClockZone[0] : zones.toArray(new ClockZone[zones.size()]);
+        invalidate();
+    }
 
-        mMinuteHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mMinuteHandPaint.setColor(mLightColor);
+    public List<ClockZone> getTimeZones() {
+        return Collections.unmodifiableList(Arrays.asList(mZones));
+    }
 
-        mSecondHandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mSecondHandPaint.setStyle(Paint.Style.FILL);
-        mSecondHandPaint.setColor(mLightColor);
+    /**
+     * 设置平滑走时模式下的最大帧率
+     *
+     * @param maxFps 最大帧率，小于等于0表示跟随屏幕刷新率
+     */
+    public void setMaxFps(int maxFps) {
+        mFrameScheduler.setMaxFps(maxFps);
+        onTickSettingsChanged();
+    }
 
-        mScaleLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mScaleLinePaint.setStyle(Paint.Style.STROKE);
-        mScaleLinePaint.setColor(mBackgroundColor);
+    /**
+     * 设置是否由进程内共用的驱动刷新，同屏有很多时钟时开启，每帧只读一次时间、算一次角度
+     * 只对默认的系统时间来源生效，自定义了 {@link #setTimeSource(TimeSource)} 时仍然自己刷新
+     *
+     * @param sharedTick 是否共用驱动
+     */
+    public void setSharedTick(boolean sharedTick) {
+        if (mSharedTick == sharedTick) {
+            return;
+        }
+        mSharedTick = sharedTick;
+        updateFrameScheduler();
+    }
 
-        mScaleArcPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mScaleArcPaint.setStyle(Paint.Style.STROKE);
+    public boolean isSharedTick() {
+        return mSharedTick;
+    }
 
-        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mTextPaint.setStyle(Paint.Style.FILL);
-        mTextPaint.setColor(mDarkColor);
-        mTextPaint.setTextSize(mTextSize);
+    /**
+     * 设置是否与其他时钟共享表盘图层，见 {@link ClockRenderer#setLayerCache(ClockLayerCache)}
+     *
+     * @param shared 是否共享
+     */
+    public void setSharedLayers(boolean shared) {
+        mRenderer.setLayerCache(shared ? ClockLayerCache.getDefault() : null);
+        invalidate();
+    }
 
-        mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mCirclePaint.setStyle(Paint.Style.STROKE);
-        mCirclePaint.setStrokeWidth(mCircleStrokeWidth);
-        mCirclePaint.setColor(mDarkColor);
+    public boolean isSharedLayers() {
+        return mRenderer.getLayerCache() != null;
+    }
 
-        mTextRect = new Rect();
-        mCircleRectF = new RectF();
-        mScaleArcRectF = new RectF();
-        mHourHandPath = new Path();
-        mMinuteHandPath = new Path();
-        mSecondHandPath = new Path();
+    /**
+     * 设置细节层级的半径阈值，表盘半径小于阈值时自动降低细节，见 {@link ClockLod}
+     *
+     * @param mediumRadius 使用中等层级的半径阈值，单位px，小于等于0表示不使用
+     * @param lowRadius    使用最低层级的半径阈值，单位px，小于等于0表示不使用
+     */
+    public void setLodThresholds(float mediumRadius, float lowRadius) {
+        mLodMediumRadius = mediumRadius;
+        mLodLowRadius = lowRadius;
+        updateLod();
+        invalidate();
+    }
 
-        mGradientMatrix = new Matrix();
-        mCameraMatrix = new Matrix();
-        mCamera = new Camera();
+    /**
+     * 按当前半径选择细节层级
+     */
+    private void updateLod() {
+        mRenderer.setLod(ClockLod.select(mRenderer.getRadius(), mLodMediumRadius, mLodLowRadius));
+    }
+
+    /**
+     * 设置绘制开销的统计，记录每帧onDraw和各绘制阶段的耗时、绘制和跳过的帧数、松手复原的帧数
+     * 共用刷新驱动时跳过的帧由驱动计入
+     * 可以通过 {@link ClockMetrics#snapshot(ClockMetrics.Snapshot)} 读取，
+     * 或者用 {@link ClockMetrics#setOnReportListener} 定期接收，都在主线程
+     *
+     * @param metrics 统计，为null时关闭，多个时钟可以共用一个
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+        mRenderer.setMetrics(metrics);
+        mFrameScheduler.setMetrics(metrics);
+    }
+
+    public ClockMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 设置是否缓存渐变圆弧和刻度线，见 {@link ClockRenderer#setScaleRingCached(boolean)}
+     *
+     * @param cached 是否缓存
+     */
+    public void setScaleRingCached(boolean cached) {
+        mRenderer.setScaleRingCached(cached);
+        invalidate();
+    }
+
+    public boolean isScaleRingCached() {
+        return mRenderer.isScaleRingCached();
+    }
+
+    /**
+     * @return 时钟绘制引擎
+     */
+    public ClockRenderer getRenderer() {
+        return mRenderer;
     }
 
     @Override
@@ -187,316 +542,228 @@ public class MiClockView extends View {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        //宽和高分别去掉padding值，取min的一半即表盘的半径
-        mRadius = Math.min(w - getPaddingLeft() - getPaddingRight(),
-                h - getPaddingTop() - getPaddingBottom()) / 2;
-        mDefaultPadding = 0.12f * mRadius;//根据比例确定默认padding大小
-        mPaddingLeft = mDefaultPadding + w / 2 - mRadius + getPaddingLeft();
-        mPaddingTop = mDefaultPadding + h / 2 - mRadius + getPaddingTop();
-        mPaddingRight = mPaddingLeft;
-        mPaddingBottom = mPaddingTop;
-        mScaleLength = 0.12f * mRadius;//根据比例确定刻度线长度
-        mScaleArcPaint.setStrokeWidth(mScaleLength);
-        mScaleLinePaint.setStrokeWidth(0.012f * mRadius);
-        mMaxCanvasTranslate = 0.02f * mRadius;
-        //梯度扫描渐变，以(w/2,h/2)为中心点，两种起止颜色梯度渐变
-        //float数组表示，[0,0.75)为起始颜色所占比例，[0.75,1}为起止颜色渐变所占比例
-        mSweepGradient = new SweepGradient(w / 2, h / 2,
-                new int[]{mDarkColor, mLightColor}, new float[]{0.75f, 1});
+        mRenderer.setSize(w, h, getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+        mTilt.setRadius(mRenderer.getRadius());
+        updateLod();
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        mCanvas = canvas;
-        setCameraRotate();
-        getTimeDegree();
-        drawTimeText();
-        drawScaleLine();
-        drawSecondHand();
-        drawHourHand();
-        drawMinuteHand();
-        invalidate();
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        getContext().registerReceiver(mTimeChangedReceiver, filter);
+        //离开窗口期间可能错过了广播
+        mTimeSource.onTimeChanged();
+        updateFrameScheduler();
     }
 
     @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                if (mShakeAnim != null && mShakeAnim.isRunning()) {
-                    mShakeAnim.cancel();
-                }
-                getCameraRotate(event);
-                getCanvasTranslate(event);
-                break;
-            case MotionEvent.ACTION_MOVE:
-                //根据手指坐标计算camera应该旋转的大小
-                getCameraRotate(event);
-                getCanvasTranslate(event);
-                break;
-            case MotionEvent.ACTION_UP:
-                //松开手指，时钟复原并伴随晃动动画
-                startShakeAnim();
-                break;
-        }
-        return true;
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getContext().unregisterReceiver(mTimeChangedReceiver);
+        cancelRelease();
+        recycleVelocityTracker();
+        mFrameScheduler.stop();
+        ClockTickDriver.getInstance().unregister(mTickClient);
+        mRenderer.release();
     }
 
-    /**
-     * 获取camera旋转的大小
-     *
-     * @param event motionEvent
-     */
-    private void getCameraRotate(MotionEvent event) {
-        float rotateX = -(event.getY() - getHeight() / 2);
-        float rotateY = (event.getX() - getWidth() / 2);
-        //求出此时旋转的大小与半径之比
-        float[] percentArr = getPercent(rotateX, rotateY);
-        //最终旋转的大小按比例匀称改变
-        mCameraRotateX = percentArr[0] * mMaxCameraRotate;
-        mCameraRotateY = percentArr[1] * mMaxCameraRotate;
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateFrameScheduler();
     }
 
-    /**
-     * 当拨动时钟时，会发现时针、分针、秒针和刻度盘会有一个较小的偏移量，形成近大远小的立体偏移效果
-     * 一开始我打算使用 matrix 和 camera 的 mCamera.translate(x, y, z) 方法改变 z 的值
-     * 但是并没有效果，所以就动态计算距离，然后在 onDraw()中分零件地 mCanvas.translate(x, y)
-     *
-     * @param event motionEvent
-     */
-    private void getCanvasTranslate(MotionEvent event) {
-        float translateX = (event.getX() - getWidth() / 2);
-        float translateY = (event.getY() - getHeight() / 2);
-        //求出此时位移的大小与半径之比
-        float[] percentArr = getPercent(translateX, translateY);
-        //最终位移的大小按比例匀称改变
-        mCanvasTranslateX = percentArr[0] * mMaxCanvasTranslate;
-        mCanvasTranslateY = percentArr[1] * mMaxCanvasTranslate;
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateFrameScheduler();
     }
 
     /**
-     * 获取一个操作旋转或位移大小的比例
-     *
-     * @param x x大小
-     * @param y y大小
-     * @return 装有xy比例的float数组
+     * 只有依附在窗口上、自身及父布局可见、窗口可见时才调度刷新
      */
-    private float[] getPercent(float x, float y) {
-        float[] percentArr = new float[2];
-        float percentX = x / mRadius;
-        float percentY = y / mRadius;
-        if (percentX > 1) {
-            percentX = 1;
-        } else if (percentX < -1) {
-            percentX = -1;
+    private void updateFrameScheduler() {
+        //构造方法中setVisibility也会触发onVisibilityChanged，此时调度器还没创建
+        if (mFrameScheduler == null) {
+            return;
         }
-        if (percentY > 1) {
-            percentY = 1;
-        } else if (percentY < -1) {
-            percentY = -1;
+        ClockTickDriver driver = ClockTickDriver.getInstance();
+        if (getWindowToken() != null && isShown() && getWindowVisibility() == VISIBLE) {
+            if (isUsingSharedTick()) {
+                mFrameScheduler.stop();
+                driver.register(mTickClient);
+                mSharedTickRegistered = true;
+            } else {
+                driver.unregister(mTickClient);
+                mSharedTickRegistered = false;
+                mFrameScheduler.start();
+            }
+        } else {
+            mFrameScheduler.stop();
+            driver.unregister(mTickClient);
+            mSharedTickRegistered = false;
         }
-        percentArr[0] = percentX;
-        percentArr[1] = percentY;
-        return percentArr;
     }
 
-    /**
-     * 设置3D时钟效果，触摸矩阵的相关设置、照相机的旋转大小
-     * 应用在绘制图形之前，否则无效
-     */
-    private void setCameraRotate() {
-        mCameraMatrix.reset();
-        mCamera.save();
-        mCamera.rotateX(mCameraRotateX);//绕x轴旋转角度
-        mCamera.rotateY(mCameraRotateY);//绕y轴旋转角度
-        mCamera.getMatrix(mCameraMatrix);//相关属性设置到matrix中
-        mCamera.restore();
-        //camera在view左上角那个点，故旋转默认是以左上角为中心旋转
-        //故在动作之前pre将matrix向左移动getWidth()/2长度，向上移动getHeight()/2长度
-        mCameraMatrix.preTranslate(-getWidth() / 2, -getHeight() / 2);
-        //在动作之后post再回到原位
-        mCameraMatrix.postTranslate(getWidth() / 2, getHeight() / 2);
-        mCanvas.concat(mCameraMatrix);//matrix与canvas相关联
+    private boolean isUsingSharedTick() {
+        return mSharedTick && mTimeSource == SystemTimeSource.getDefault();
     }
 
     /**
-     * 时钟晃动动画
+     * 走时模式或帧率改变后，通知共用驱动重新调度，并立即按新的模式更新角度
      */
-    private void startShakeAnim() {
-        final String cameraRotateXName = "cameraRotateX";
-        final String cameraRotateYName = "cameraRotateY";
-        final String canvasTranslateXName = "canvasTranslateX";
-        final String canvasTranslateYName = "canvasTranslateY";
-        PropertyValuesHolder cameraRotateXHolder =
-                PropertyValuesHolder.ofFloat(cameraRotateXName, mCameraRotateX, 0);
-        PropertyValuesHolder cameraRotateYHolder =
-                PropertyValuesHolder.ofFloat(cameraRotateYName, mCameraRotateY, 0);
-        PropertyValuesHolder canvasTranslateXHolder =
-                PropertyValuesHolder.ofFloat(canvasTranslateXName, mCanvasTranslateX, 0);
-        PropertyValuesHolder canvasTranslateYHolder =
-                PropertyValuesHolder.ofFloat(canvasTranslateYName, mCanvasTranslateY, 0);
-        mShakeAnim = ValueAnimator.ofPropertyValuesHolder(cameraRotateXHolder,
-                cameraRotateYHolder, canvasTranslateXHolder, canvasTranslateYHolder);
-        mShakeAnim.setInterpolator(new TimeInterpolator() {
-            @Override
-            public float getInterpolation(float input) {
-                //http://inloop.github.io/interpolator/
-                float f = 0.571429f;
-                return (float) (Math.pow(2, -2 * input) * Math.sin((input - f / 4) * (2 * Math.PI) / f) + 1);
-            }
-        });
-        mShakeAnim.setDuration(1000);
-        mShakeAnim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                mCameraRotateX = (float) animation.getAnimatedValue(cameraRotateXName);
-                mCameraRotateY = (float) animation.getAnimatedValue(cameraRotateYName);
-                mCanvasTranslateX = (float) animation.getAnimatedValue(canvasTranslateXName);
-                mCanvasTranslateY = (float) animation.getAnimatedValue(canvasTranslateYName);
+    private void onTickSettingsChanged() {
+        if (mSharedTickRegistered) {
+            ClockTickDriver.getInstance().onClientChanged();
+            getTimeDegree();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        ClockMetrics metrics = mMetrics;
+        long frameStart = metrics != null ? metrics.start() : 0;
+        //共用驱动时角度已经由驱动算好
+        if (!mSharedTickRegistered) {
+            getTimeDegree();
+        }
+        if (mZones.length > 0) {
+            //所有时区共用一次读取的系统时间
+            long now = System.currentTimeMillis();
+            int tickMode = mFrameScheduler.getMode();
+            for (ClockZone zone : mZones) {
+                zone.update(now, tickMode);
             }
-        });
-        mShakeAnim.start();
+        }
+        if (mReleasing) {
+            updateRelease();
+        }
+        if (mAmbient) {
+            canvas.drawColor(ClockAmbient.BACKGROUND_COLOR);
+            long minute = mTimeSource.localTimeMillis() / 60000;
+            mRenderer.setBurnInOffset(ClockAmbient.burnInOffsetX(minute, mBurnInShift),
+                    ClockAmbient.burnInOffsetY(minute, mBurnInShift));
+        }
+        mRenderer.draw(canvas, mClockAngles, mTilt, mZones);
+        if (metrics != null) {
+            metrics.lap(ClockMetrics.PHASE_FRAME, frameStart);
+            metrics.onFrameRendered();
+        }
     }
 
-    /**
-     * 获取当前时分秒所对应的角度
-     * 为了不让秒针走得像老式挂钟一样僵硬，需要精确到毫秒
-     */
-    private void getTimeDegree() {
-        Calendar calendar = Calendar.getInstance();
-        float milliSecond = calendar.get(Calendar.MILLISECOND);
-        float second = calendar.get(Calendar.SECOND) + milliSecond / 1000;
-        float minute = calendar.get(Calendar.MINUTE) + second / 60;
-        float hour = calendar.get(Calendar.HOUR) + minute / 60;
-        mSecondDegree = second / 60 * 360;
-        mMinuteDegree = minute / 60 * 360;
-        mHourDegree = hour / 12 * 360;
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mAmbient) {
+            return false;
+        }
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                cancelRelease();
+                if (mVelocityTracker == null) {
+                    mVelocityTracker = VelocityTracker.obtain();
+                } else {
+                    mVelocityTracker.clear();
+                }
+                //速度跟踪器会读取事件中的历史采样，倾斜只用最新坐标
+                mVelocityTracker.addMovement(event);
+                mTilt.setTouchPoint(event.getX() - getWidth() / 2, event.getY() - getHeight() / 2);
+                invalidate();
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.addMovement(event);
+                }
+                //只记下最新的手指坐标，绘制前才换算camera旋转的大小和指针的位移，一帧只算一次
+                mTilt.setTouchPoint(event.getX() - getWidth() / 2, event.getY() - getHeight() / 2);
+                invalidate();
+                break;
+            case MotionEvent.ACTION_UP:
+                //松开手指，时钟按手指速度复原
+                float velocityX = 0;
+                float velocityY = 0;
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.addMovement(event);
+                    mVelocityTracker.computeCurrentVelocity(1000);
+                    velocityX = mVelocityTracker.getXVelocity();
+                    velocityY = mVelocityTracker.getYVelocity();
+                }
+                recycleVelocityTracker();
+                startRelease(velocityX, velocityY);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                recycleVelocityTracker();
+                startRelease(0, 0);
+                break;
+        }
+        return true;
     }
 
-    /**
-     * 画最外圈的时间文本和4个弧线
-     */
-    private void drawTimeText() {
-        String timeText = "12";
-        mTextPaint.getTextBounds(timeText, 0, timeText.length(), mTextRect);
-        int textLargeWidth = mTextRect.width();//两位数字的宽
-        mCanvas.drawText("12", getWidth() / 2 - textLargeWidth / 2, mPaddingTop + mTextRect.height(), mTextPaint);
-        timeText = "3";
-        mTextPaint.getTextBounds(timeText, 0, timeText.length(), mTextRect);
-        int textSmallWidth = mTextRect.width();//一位数字的宽
-        mCanvas.drawText("3", getWidth() - mPaddingRight - mTextRect.height() / 2 - textSmallWidth / 2,
-                getHeight() / 2 + mTextRect.height() / 2, mTextPaint);
-        mCanvas.drawText("6", getWidth() / 2 - textSmallWidth / 2, getHeight() - mPaddingBottom, mTextPaint);
-        mCanvas.drawText("9", mPaddingLeft + mTextRect.height() / 2 - textSmallWidth / 2,
-                getHeight() / 2 + mTextRect.height() / 2, mTextPaint);
-
-        //画4个弧
-        mCircleRectF.set(mPaddingLeft + mTextRect.height() / 2 + mCircleStrokeWidth / 2,
-                mPaddingTop + mTextRect.height() / 2 + mCircleStrokeWidth / 2,
-                getWidth() - mPaddingRight - mTextRect.height() / 2 + mCircleStrokeWidth / 2,
-                getHeight() - mPaddingBottom - mTextRect.height() / 2 + mCircleStrokeWidth / 2);
-        for (int i = 0; i < 4; i++) {
-            mCanvas.drawArc(mCircleRectF, 5 + 90 * i, 80, false, mCirclePaint);
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
         }
     }
 
     /**
-     * 画一圈梯度渲染的亮暗色渐变圆弧，重绘时不断旋转，上面盖一圈背景色的刻度线
+     * 从松手时的倾斜状态开始复原，之后每帧在onDraw中推进，不使用属性动画
+     *
+     * @param velocityX 松手时手指的水平速度，单位px/s
+     * @param velocityY 松手时手指的垂直速度，单位px/s
      */
-    private void drawScaleLine() {
-        mCanvas.save();
-        mCanvas.translate(mCanvasTranslateX, mCanvasTranslateY);
-        mScaleArcRectF.set(mPaddingLeft + 1.5f * mScaleLength + mTextRect.height() / 2,
-                mPaddingTop + 1.5f * mScaleLength + mTextRect.height() / 2,
-                getWidth() - mPaddingRight - mTextRect.height() / 2 - 1.5f * mScaleLength,
-                getHeight() - mPaddingBottom - mTextRect.height() / 2 - 1.5f * mScaleLength);
-        //matrix默认会在三点钟方向开始颜色的渐变，为了吻合钟表十二点钟顺时针旋转的方向，把秒针旋转的角度减去90度
-        mGradientMatrix.setRotate(mSecondDegree - 90, getWidth() / 2, getHeight() / 2);
-        mSweepGradient.setLocalMatrix(mGradientMatrix);
-        mScaleArcPaint.setShader(mSweepGradient);
-        mCanvas.drawArc(mScaleArcRectF, 0, 360, false, mScaleArcPaint);
-        //画背景色刻度线
-        for (int i = 0; i < 200; i++) {
-            mCanvas.drawLine(getWidth() / 2, mPaddingTop + mScaleLength + mTextRect.height() / 2,
-                    getWidth() / 2, mPaddingTop + 2 * mScaleLength + mTextRect.height() / 2, mScaleLinePaint);
-            mCanvas.rotate(1.8f, getWidth() / 2, getHeight() / 2);
-        }
-        mCanvas.restore();
+    private void startRelease(float velocityX, float velocityY) {
+        mTilt.startRelease();
+        if (mReleaseMode == RELEASE_SPRING) {
+            float radius = mTilt.getRadius();
+            if (radius > 0) {
+                mSpring.start(mTilt.getPercentX(), mTilt.getPercentY(), velocityX / radius, velocityY / radius);
+            } else {
+                mSpring.start(0, 0, 0, 0);
+            }
+        }
+        mReleasing = true;
+        mReleaseStartNanos = System.nanoTime();
+        mLastReleaseNanos = mReleaseStartNanos;
+        invalidate();
     }
 
-    /**
-     * 画秒针，根据不断变化的秒针角度旋转画布
-     */
-    private void drawSecondHand() {
-        mCanvas.save();
-        mCanvas.translate(mCanvasTranslateX, mCanvasTranslateY);
-        mCanvas.rotate(mSecondDegree, getWidth() / 2, getHeight() / 2);
-        if (mSecondHandPath.isEmpty()) {
-            mSecondHandPath.reset();
-            float offset = mPaddingTop + mTextRect.height() / 2;
-            mSecondHandPath.moveTo(getWidth() / 2, offset + 0.26f * mRadius);
-            mSecondHandPath.lineTo(getWidth() / 2 - 0.05f * mRadius, offset + 0.34f * mRadius);
-            mSecondHandPath.lineTo(getWidth() / 2 + 0.05f * mRadius, offset + 0.34f * mRadius);
-            mSecondHandPath.close();
-            mSecondHandPaint.setColor(mLightColor);
-        }
-        mCanvas.drawPath(mSecondHandPath, mSecondHandPaint);
-        mCanvas.restore();
+    private void cancelRelease() {
+        mReleasing = false;
+        mSpring.cancel();
     }
 
     /**
-     * 画时针，根据不断变化的时针角度旋转画布
-     * 针头为圆弧状，使用二阶贝塞尔曲线
+     * 推进一帧复原，还没停下时请求下一帧，停下后倾斜正好为0，不再请求
      */
-    private void drawHourHand() {
-        mCanvas.save();
-        mCanvas.translate(mCanvasTranslateX * 1.2f, mCanvasTranslateY * 1.2f);
-        mCanvas.rotate(mHourDegree, getWidth() / 2, getHeight() / 2);
-        if (mHourHandPath.isEmpty()) {
-            mHourHandPath.reset();
-            float offset = mPaddingTop + mTextRect.height() / 2;
-            mHourHandPath.moveTo(getWidth() / 2 - 0.018f * mRadius, getHeight() / 2 - 0.03f * mRadius);
-            mHourHandPath.lineTo(getWidth() / 2 - 0.009f * mRadius, offset + 0.48f * mRadius);
-            mHourHandPath.quadTo(getWidth() / 2, offset + 0.46f * mRadius,
-                    getWidth() / 2 + 0.009f * mRadius, offset + 0.48f * mRadius);
-            mHourHandPath.lineTo(getWidth() / 2 + 0.018f * mRadius, getHeight() / 2 - 0.03f * mRadius);
-            mHourHandPath.close();
-        }
-        mHourHandPaint.setStyle(Paint.Style.FILL);
-        mCanvas.drawPath(mHourHandPath, mHourHandPaint);
-
-        mCircleRectF.set(getWidth() / 2 - 0.03f * mRadius, getHeight() / 2 - 0.03f * mRadius,
-                getWidth() / 2 + 0.03f * mRadius, getHeight() / 2 + 0.03f * mRadius);
-        mHourHandPaint.setStyle(Paint.Style.STROKE);
-        mHourHandPaint.setStrokeWidth(0.01f * mRadius);
-        mCanvas.drawArc(mCircleRectF, 0, 360, false, mHourHandPaint);
-        mCanvas.restore();
+    private void updateRelease() {
+        long now = System.nanoTime();
+        boolean running;
+        if (mReleaseMode == RELEASE_SPRING) {
+            running = mSpring.advance(now - mLastReleaseNanos);
+            mTilt.setPercent(mSpring.getX(), mSpring.getY());
+        } else {
+            float fraction = (float) (now - mReleaseStartNanos) / SHAKE_DURATION_NANOS;
+            running = fraction < 1;
+            mTilt.updateRelease(mShakeInterpolator.getInterpolation(Math.min(fraction, 1)));
+        }
+        mLastReleaseNanos = now;
+        mReleasing = running;
+        if (mMetrics != null) {
+            mMetrics.onReleaseFrame();
+        }
+        if (running) {
+            postInvalidateOnAnimation();
+        }
     }
 
     /**
-     * 画分针，根据不断变化的分针角度旋转画布
+     * 获取当前时分秒所对应的角度
+     * 为了不让秒针走得像老式挂钟一样僵硬，平滑模式下需要精确到毫秒
+     * 跳秒模式舍去毫秒，分钟模式舍去秒，使指针停在刻度上
      */
-    private void drawMinuteHand() {
-        mCanvas.save();
-        mCanvas.translate(mCanvasTranslateX * 2f, mCanvasTranslateY * 2f);
-        mCanvas.rotate(mMinuteDegree, getWidth() / 2, getHeight() / 2);
-        if (mMinuteHandPath.isEmpty()) {
-            mMinuteHandPath.reset();
-            float offset = mPaddingTop + mTextRect.height() / 2;
-            mMinuteHandPath.moveTo(getWidth() / 2 - 0.01f * mRadius, getHeight() / 2 - 0.03f * mRadius);
-            mMinuteHandPath.lineTo(getWidth() / 2 - 0.008f * mRadius, offset + 0.365f * mRadius);
-            mMinuteHandPath.quadTo(getWidth() / 2, offset + 0.345f * mRadius,
-                    getWidth() / 2 + 0.008f * mRadius, offset + 0.365f * mRadius);
-            mMinuteHandPath.lineTo(getWidth() / 2 + 0.01f * mRadius, getHeight() / 2 - 0.03f * mRadius);
-            mMinuteHandPath.close();
-        }
-        mMinuteHandPaint.setStyle(Paint.Style.FILL);
-        mCanvas.drawPath(mMinuteHandPath, mMinuteHandPaint);
-
-        mCircleRectF.set(getWidth() / 2 - 0.03f * mRadius, getHeight() / 2 - 0.03f * mRadius,
-                getWidth() / 2 + 0.03f * mRadius, getHeight() / 2 + 0.03f * mRadius);
-        mMinuteHandPaint.setStyle(Paint.Style.STROKE);
-        mMinuteHandPaint.setStrokeWidth(0.02f * mRadius);
-        mCanvas.drawArc(mCircleRectF, 0, 360, false, mMinuteHandPaint);
-        mCanvas.restore();
+    private void getTimeDegree() {
+        mClockAngles.set(mTimeSource.localTimeMillis(), mFrameScheduler.getMode());
     }
 }
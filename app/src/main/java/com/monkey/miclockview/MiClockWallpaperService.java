@@ -0,0 +1,180 @@
+package com.monkey.miclockview;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.service.wallpaper.WallpaperService;
+import android.view.SurfaceHolder;
+
+/**
+ * 小米时钟动态壁纸，表盘样式取自 {@code R.style.MiClockWallpaper}
+ * 不可见时完全停止绘制，灭屏时降到每分钟刷新，桌面滑动时限制帧率，
+ * 桌面的滑动偏移代替触摸映射为时钟的3D倾斜
+ */
+public class MiClockWallpaperService extends WallpaperService {
+
+    @Override
+    public Engine onCreateEngine() {
+        return new ClockEngine();
+    }
+
+    private class ClockEngine extends Engine implements FrameScheduler.OnTickListener {
+
+        private final Handler mHandler = new Handler();
+        private ClockRenderer mRenderer;
+        private FrameScheduler mScheduler;
+        private WallpaperFramePolicy mPolicy;
+        private final ClockTilt mTilt = new ClockTilt();
+        private final ClockAngles mAngles = new ClockAngles();
+        private final TimeSource mTimeSource = SystemTimeSource.getDefault();
+        private float mOffsetPercentX;
+        private float mOffsetPercentY;
+
+        /* 桌面停止滑动后恢复正常帧率 */
+        private final Runnable mScrollIdleRunnable = new Runnable() {
+            @Override
+            public void run() {
+                updateScheduler();
+            }
+        };
+
+        /* 监听亮灭屏、系统时间和时区的改变 */
+        private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String action = intent.getAction();
+                if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+                    mPolicy.setScreenOn(false);
+                } else if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                    mPolicy.setScreenOn(true);
+                } else {
+                    mTimeSource.onTimeChanged();
+                }
+                updateScheduler();
+                mScheduler.requestThrottledFrame();
+            }
+        };
+
+        @Override
+        public void onCreate(SurfaceHolder surfaceHolder) {
+            super.onCreate(surfaceHolder);
+            TypedArray ta = obtainStyledAttributes(null, R.styleable.MiClockView, 0, R.style.MiClockWallpaper);
+            mRenderer = ClockRenderer.fromAttributes(MiClockWallpaperService.this, ta);
+            mPolicy = new WallpaperFramePolicy(
+                    ta.getInt(R.styleable.MiClockView_tickMode, FrameScheduler.MODE_SMOOTH),
+                    ta.getInt(R.styleable.MiClockView_maxFps, 0));
+            ta.recycle();
+            mScheduler = new FrameScheduler(this);
+            //桌面偏移代替触摸
+            setTouchEventsEnabled(false);
+
+            IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+            filter.addAction(Intent.ACTION_SCREEN_ON);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            registerReceiver(mReceiver, filter);
+        }
+
+        @Override
+        public void onDestroy() {
+            super.onDestroy();
+            unregisterReceiver(mReceiver);
+            mHandler.removeCallbacks(mScrollIdleRunnable);
+            mScheduler.stop();
+            mRenderer.release();
+        }
+
+        @Override
+        public void onVisibilityChanged(boolean visible) {
+            mPolicy.setVisible(visible);
+            if (visible) {
+                //不可见期间可能错过了时间改变的广播
+                mTimeSource.onTimeChanged();
+            }
+            updateScheduler();
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            mRenderer.setSize(width, height, 0, 0, 0, 0);
+            mTilt.setRadius(mRenderer.getRadius());
+            applyOffsetTilt();
+            drawFrame();
+        }
+
+        @Override
+        public void onSurfaceDestroyed(SurfaceHolder holder) {
+            super.onSurfaceDestroyed(holder);
+            mPolicy.setVisible(false);
+            updateScheduler();
+            mRenderer.release();
+        }
+
+        @Override
+        public void onOffsetsChanged(float xOffset, float yOffset, float xOffsetStep, float yOffsetStep,
+                                     int xPixelOffset, int yPixelOffset) {
+            mOffsetPercentX = WallpaperFramePolicy.offsetToPercent(xOffset, xOffsetStep);
+            mOffsetPercentY = WallpaperFramePolicy.offsetToPercent(yOffset, yOffsetStep);
+            applyOffsetTilt();
+            long now = SystemClock.uptimeMillis();
+            mPolicy.onScrolled(now);
+            updateScheduler();
+            //桌面偏移事件的频率可能高于帧率限制，合并到按滑动帧率排期的下一帧
+            mScheduler.requestThrottledFrame();
+            mHandler.removeCallbacks(mScrollIdleRunnable);
+            mHandler.postAtTime(mScrollIdleRunnable, now + WallpaperFramePolicy.SCROLL_IDLE_MILLIS);
+        }
+
+        /**
+         * 把桌面偏移的比例换算成相对表盘中心的距离，复用触摸时的倾斜计算
+         */
+        private void applyOffsetTilt() {
+            float radius = mRenderer.getRadius();
+            mTilt.touch(mOffsetPercentX * radius, mOffsetPercentY * radius);
+        }
+
+        /**
+         * 按策略开始、停止调度或调整走时模式和帧率
+         */
+        private void updateScheduler() {
+            if (!mPolicy.shouldRender()) {
+                mScheduler.stop();
+                return;
+            }
+            mScheduler.setMode(mPolicy.getTickMode());
+            mScheduler.setMaxFps(mPolicy.getMaxFps(SystemClock.uptimeMillis()));
+            mScheduler.start();
+        }
+
+        @Override
+        public void onTick() {
+            drawFrame();
+        }
+
+        private void drawFrame() {
+            if (!mPolicy.shouldRender()) {
+                return;
+            }
+            SurfaceHolder holder = getSurfaceHolder();
+            Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                    ? holder.lockHardwareCanvas() : holder.lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                mAngles.set(mTimeSource.localTimeMillis(), mScheduler.getMode());
+                canvas.drawColor(mRenderer.getBackgroundColor());
+                mRenderer.draw(canvas, mAngles, mTilt);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.monkey.miclockview;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.SparseArray;
+import android.widget.RemoteViews;
+
+/**
+ * 小米时钟桌面小部件，RemoteViews 放不了自定义View，所以把表盘画到Bitmap上
+ * 每到整分由闹钟触发一次刷新，不轮询；同样尺寸的多个实例共用一次绘制和一次更新
+ */
+public class MiClockWidgetProvider extends AppWidgetProvider {
+
+    /* 整分刷新的广播 */
+    static final String ACTION_TICK = "com.monkey.miclockview.action.WIDGET_TICK";
+
+    /* 按Bitmap边长缓存的绘制结果，进程存活期间表盘静态层和Bitmap在刷新之间复用 */
+    private static final SparseArray<WidgetFrame> sFrames = new SparseArray<>();
+    private static final ClockTilt sTilt = new ClockTilt();
+    private static final ClockAngles sAngles = new ClockAngles();
+
+    /**
+     * 某个尺寸的渲染器和输出Bitmap
+     */
+    private static class WidgetFrame {
+        final ClockRenderer renderer;
+        final Bitmap bitmap;
+        final Canvas canvas;
+        /* 本轮刷新中使用这个尺寸的小部件 */
+        int[] ids;
+        int count;
+
+        WidgetFrame(ClockRenderer renderer, int side) {
+            this.renderer = renderer;
+            renderer.setSize(side, side, 0, 0, 0, 0);
+            bitmap = Bitmap.createBitmap(side, side, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(bitmap);
+        }
+
+        void add(int id) {
+            if (ids == null || count == ids.length) {
+                int[] grown = new int[count == 0 ? 4 : count * 2];
+                if (ids != null) {
+                    System.arraycopy(ids, 0, grown, 0, count);
+                }
+                ids = grown;
+            }
+            ids[count++] = id;
+        }
+
+        void release() {
+            renderer.release();
+            bitmap.recycle();
+        }
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (ACTION_TICK.equals(action)
+                || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            if (!ACTION_TICK.equals(action)) {
+                SystemTimeSource.getDefault().onTimeChanged();
+            }
+            updateAll(context);
+            return;
+        }
+        super.onReceive(context, intent);
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        updateAll(context);
+    }
+
+    @Override
+    public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager,
+                                          int appWidgetId, Bundle newOptions) {
+        //尺寸变了，其他实例也一并刷新以便释放不再使用的尺寸
+        updateAll(context);
+    }
+
+    @Override
+    public void onDisabled(Context context) {
+        getAlarmManager(context).cancel(getTickIntent(context));
+        synchronized (sFrames) {
+            for (int i = 0; i < sFrames.size(); i++) {
+                sFrames.valueAt(i).release();
+            }
+            sFrames.clear();
+        }
+    }
+
+    /**
+     * 刷新所有实例，按Bitmap尺寸分组，每组只画一次、更新一次，然后排期下一个整分
+     */
+    private static void updateAll(Context context) {
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        int[] ids = manager.getAppWidgetIds(new ComponentName(context, MiClockWidgetProvider.class));
+        if (ids == null || ids.length == 0) {
+            return;
+        }
+        float density = context.getResources().getDisplayMetrics().density;
+        synchronized (sFrames) {
+            SparseArray<WidgetFrame> used = new SparseArray<>();
+            for (int id : ids) {
+                int side = getBitmapSide(manager.getAppWidgetOptions(id), density);
+                if (side <= 0) {
+                    continue;
+                }
+                WidgetFrame frame = used.get(side);
+                if (frame == null) {
+                    frame = sFrames.get(side);
+                    if (frame == null) {
+                        frame = new WidgetFrame(createRenderer(context), side);
+                    } else {
+                        sFrames.remove(side);
+                    }
+                    frame.count = 0;
+                    used.put(side, frame);
+                }
+                frame.add(id);
+            }
+            //不再使用的尺寸直接释放
+            for (int i = 0; i < sFrames.size(); i++) {
+                sFrames.valueAt(i).release();
+            }
+            sFrames.clear();
+
+            sAngles.set(SystemTimeSource.getDefault().localTimeMillis(), FrameScheduler.MODE_MINUTE);
+            for (int i = 0; i < used.size(); i++) {
+                WidgetFrame frame = used.valueAt(i);
+                frame.canvas.drawColor(frame.renderer.getBackgroundColor());
+                frame.renderer.draw(frame.canvas, sAngles, sTilt);
+                RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_clock);
+                views.setImageViewBitmap(R.id.clock_image, frame.bitmap);
+                int[] batch = new int[frame.count];
+                System.arraycopy(frame.ids, 0, batch, 0, frame.count);
+                manager.updateAppWidget(batch, views);
+                sFrames.put(used.keyAt(i), frame);
+            }
+        }
+        scheduleNextTick(context);
+    }
+
+    /**
+     * 根据小部件的实际尺寸计算Bitmap边长，取竖屏和横屏下较大的尺寸，由ImageView缩放适配
+     */
+    private static int getBitmapSide(Bundle options, float density) {
+        if (options == null) {
+            return 0;
+        }
+        int widthDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH, 0);
+        int heightDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_HEIGHT, 0);
+        return ClockWidgetLayout.bitmapSide(ClockWidgetLayout.dpToPx(widthDp, density),
+                ClockWidgetLayout.dpToPx(heightDp, density), ClockWidgetLayout.MAX_BITMAP_BYTES);
+    }
+
+    private static ClockRenderer createRenderer(Context context) {
+        TypedArray ta = context.obtainStyledAttributes(null, R.styleable.MiClockView, 0, R.style.MiClockWidget);
+        ClockRenderer renderer = ClockRenderer.fromAttributes(context, ta);
+        ta.recycle();
+        return renderer;
+    }
+
+    /**
+     * 在下一个整分触发刷新
+     */
+    private static void scheduleNextTick(Context context) {
+        long next = ClockWidgetLayout.nextMinuteBoundary(System.currentTimeMillis());
+        AlarmManager alarmManager = getAlarmManager(context);
+        PendingIntent tick = getTickIntent(context);
+        //不唤醒设备，亮屏后会立即补上错过的一次
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            alarmManager.setExact(AlarmManager.RTC, next, tick);
+        } else {
+            alarmManager.set(AlarmManager.RTC, next, tick);
+        }
+    }
+
+    private static AlarmManager getAlarmManager(Context context) {
+        return (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    private static PendingIntent getTickIntent(Context context) {
+        Intent intent = new Intent(context, MiClockWidgetProvider.class);
+        intent.setAction(ACTION_TICK);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
@@ -0,0 +1,49 @@
+package com.monkey.miclockview;
+
+/**
+ * 刻度线网格，预先计算好一圈刻度线的端点坐标
+ * 绘制时只需一次 Canvas.drawLines(float[], Paint) 调用，不用每根刻度线都 drawLine + rotate
+ */
+public final class ScaleLineMesh {
+
+    /* 默认刻度线数量 */
+    public static final int DEFAULT_COUNT = 200;
+
+    private ScaleLineMesh() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 计算一圈刻度线的端点
+     * 第0根刻度线竖直位于十二点钟方向，之后以(centerX, centerY)为中心顺时针依次旋转 360/count 度
+     *
+     * @param centerX 旋转中心x坐标
+     * @param centerY 旋转中心y坐标
+     * @param startY  十二点钟方向刻度线起点的y坐标
+     * @param stopY   十二点钟方向刻度线终点的y坐标
+     * @param count   刻度线数量
+     * @param out     用于复用的数组，长度不足 4*count 时会新建
+     * @return 按 drawLines 要求排列的端点数组 [x0, y0, x1, y1, ...]
+     */
+    public static float[] build(float centerX, float centerY, float startY, float stopY,
+                                int count, float[] out) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0");
+        }
+        float[] pts = out != null && out.length >= count * 4 ? out : new float[count * 4];
+        double startDy = startY - centerY;
+        double stopDy = stopY - centerY;
+        double step = 2 * Math.PI / count;
+        for (int i = 0; i < count; i++) {
+            double sin = Math.sin(step * i);
+            double cos = Math.cos(step * i);
+            //屏幕坐标系y轴向下，点(0, dy)顺时针旋转后为(-dy*sin, dy*cos)
+            pts[i * 4] = (float) (centerX - startDy * sin);
+            pts[i * 4 + 1] = (float) (centerY + startDy * cos);
+            pts[i * 4 + 2] = (float) (centerX - stopDy * sin);
+            pts[i * 4 + 3] = (float) (centerY + stopDy * cos);
+        }
+        return pts;
+    }
+}
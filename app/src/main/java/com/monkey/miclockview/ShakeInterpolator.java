@@ -0,0 +1,48 @@
+package com.monkey.miclockview;
+
+import android.animation.TimeInterpolator;
+
+/**
+ * 松手时时钟晃动的插值器，衰减的正弦曲线
+ * http://inloop.github.io/interpolator/
+ * 曲线预先算成一张表，每帧只做一次线性插值，不再调用Math.pow和Math.sin
+ */
+public class ShakeInterpolator implements TimeInterpolator {
+
+    private static final float FACTOR = 0.571429f;
+    /* 查找表的分段数 */
+    static final int TABLE_SEGMENTS = 256;
+    /* [0, 1]均分后各点的插值，所有实例共用 */
+    private static final float[] TABLE = buildTable();
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input <= 0) {
+            return TABLE[0];
+        }
+        if (input >= 1) {
+            return TABLE[TABLE_SEGMENTS];
+        }
+        float position = input * TABLE_SEGMENTS;
+        int index = (int) position;
+        float fraction = position - index;
+        return TABLE[index] + (TABLE[index + 1] - TABLE[index]) * fraction;
+    }
+
+    /**
+     * 原始的衰减正弦曲线，只在建表时使用
+     */
+    static float evaluate(float input) {
+        return (float) (Math.pow(2, -2 * input) * Math.sin((input - FACTOR / 4) * (2 * Math.PI) / FACTOR) + 1);
+    }
+
+    private static float[] buildTable() {
+        float[] table = new float[TABLE_SEGMENTS + 1];
+        for (int i = 0; i <= TABLE_SEGMENTS; i++) {
+            table[i] = evaluate((float) i / TABLE_SEGMENTS);
+        }
+        //曲线在1处理论上正好复原，去掉浮点误差，保证动画结束时倾斜为0
+        table[TABLE_SEGMENTS] = 1;
+        return table;
+    }
+}
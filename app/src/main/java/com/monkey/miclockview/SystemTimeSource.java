@@ -0,0 +1,115 @@
+package com.monkey.miclockview;
+
+import java.util.TimeZone;
+
+/**
+ * 默认的时间来源，基于 System.currentTimeMillis() 和缓存的时区偏移计算本地时间
+ * 只有在时间或时区改变、或者跨过夏令时切换点时才重新查询时区，每帧调用不分配对象
+ */
+public class SystemTimeSource implements TimeSource {
+
+    /* 向后查找夏令时切换点的步长 */
+    private static final long SEARCH_STEP_MILLIS = 24 * 60 * 60 * 1000L;
+    /* 向后查找夏令时切换点的范围，找不到时到期后重新查找 */
+    private static final long SEARCH_RANGE_MILLIS = 366 * SEARCH_STEP_MILLIS;
+
+    private static SystemTimeSource sDefault;
+
+    /* 固定的时区，为null时使用系统默认时区 */
+    private final TimeZone mFixedZone;
+    /* 缓存的时区偏移 */
+    private int mOffsetMillis;
+    /* 缓存生效的起始时间，系统时间往回调时需要重新计算 */
+    private long mValidFromMillis;
+    /* 缓存失效的时间，即下一个时区偏移切换点 */
+    private long mValidUntilMillis;
+    /* 缓存是否有效 */
+    private boolean mValid;
+
+    /**
+     * 获取进程内共享的默认实例，时区偏移是全局的，多个时钟可以共用一份缓存
+     *
+     * @return 跟随系统默认时区的时间来源
+     */
+    public static synchronized SystemTimeSource getDefault() {
+        if (sDefault == null) {
+            sDefault = new SystemTimeSource(null);
+        }
+        return sDefault;
+    }
+
+    /**
+     * @param fixedZone 固定使用的时区，为null时跟随系统默认时区
+     */
+    public SystemTimeSource(TimeZone fixedZone) {
+        mFixedZone = fixedZone;
+    }
+
+    @Override
+    public long localTimeMillis() {
+        return toLocalMillis(System.currentTimeMillis());
+    }
+
+    /**
+     * 把UTC时间换算成本时区的本地时间，多个时区共用同一次读取的系统时间时使用
+     *
+     * @param utcMillis UTC时间毫秒数
+     * @return 本地时间毫秒数
+     */
+    public synchronized long toLocalMillis(long utcMillis) {
+        if (!mValid || utcMillis >= mValidUntilMillis || utcMillis < mValidFromMillis) {
+            refresh(utcMillis);
+        }
+        return utcMillis + mOffsetMillis;
+    }
+
+    @Override
+    public synchronized void onTimeChanged() {
+        mValid = false;
+    }
+
+    /**
+     * 重新查询时区偏移，并找到下一个偏移切换点作为缓存的失效时间
+     *
+     * @param now 当前UTC毫秒数
+     */
+    private void refresh(long now) {
+        TimeZone zone = mFixedZone != null ? mFixedZone : TimeZone.getDefault();
+        mOffsetMillis = zone.getOffset(now);
+        mValidFromMillis = now;
+        mValidUntilMillis = nextTransition(zone, now);
+        mValid = true;
+    }
+
+    /**
+     * 查找 fromMillis 之后时区偏移第一次改变的时间点
+     * 先按天步进找到发生改变的区间，再二分到毫秒
+     *
+     * @param zone       时区
+     * @param fromMillis 起始UTC毫秒数
+     * @return 偏移改变的UTC毫秒数，一年内都不改变时返回一年后的时间
+     */
+    static long nextTransition(TimeZone zone, long fromMillis) {
+        int offset = zone.getOffset(fromMillis);
+        long low = fromMillis;
+        long high = fromMillis + SEARCH_STEP_MILLIS;
+        long limit = fromMillis + SEARCH_RANGE_MILLIS;
+        while (zone.getOffset(high) == offset) {
+            if (high >= limit) {
+                return limit;
+            }
+            low = high;
+            high += SEARCH_STEP_MILLIS;
+        }
+        //此时low的偏移等于offset，high的偏移不等于offset
+        while (high - low > 1) {
+            long mid = (low + high) >>> 1;
+            if (zone.getOffset(mid) == offset) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+}
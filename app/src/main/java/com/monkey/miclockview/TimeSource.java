@@ -0,0 +1,19 @@
+package com.monkey.miclockview;
+
+/**
+ * 时钟的时间来源，每帧都会调用，实现类不应在其中分配对象
+ */
+public interface TimeSource {
+
+    /**
+     * 获取当前的本地时间
+     *
+     * @return 本地时区的墙上时间，即UTC毫秒数加上当前的时区偏移
+     */
+    long localTimeMillis();
+
+    /**
+     * 系统时间被修改或时区改变时回调，实现类可以在这里丢弃缓存的时区偏移
+     */
+    void onTimeChanged();
+}
@@ -0,0 +1,103 @@
+package com.monkey.miclockview;
+
+/**
+ * 动态壁纸的刷新策略，根据可见性、屏幕状态和桌面滑动决定走时模式和帧率
+ * 不依赖Android框架，可以直接在JVM上测试
+ */
+public class WallpaperFramePolicy {
+
+    /* 桌面停止滑动多久之后恢复正常帧率 */
+    public static final long SCROLL_IDLE_MILLIS = 300;
+    /* 桌面滑动时的最大帧率 */
+    public static final int SCROLLING_MAX_FPS = 30;
+
+    /* 壁纸是否可见 */
+    private boolean mVisible;
+    /* 屏幕是否亮着 */
+    private boolean mScreenOn = true;
+    /* 最近一次桌面滑动的时间 */
+    private long mLastScrollMillis = -SCROLL_IDLE_MILLIS;
+    /* 正常情况下的走时模式 */
+    private final int mTickMode;
+    /* 正常情况下的最大帧率 */
+    private final int mMaxFps;
+
+    /**
+     * @param tickMode 正常情况下的走时模式
+     * @param maxFps   正常情况下平滑走时的最大帧率，小于等于0表示不限制
+     */
+    public WallpaperFramePolicy(int tickMode, int maxFps) {
+        mTickMode = tickMode;
+        mMaxFps = maxFps;
+    }
+
+    public void setVisible(boolean visible) {
+        mVisible = visible;
+    }
+
+    public void setScreenOn(boolean screenOn) {
+        mScreenOn = screenOn;
+    }
+
+    /**
+     * 桌面滑动时调用
+     *
+     * @param nowMillis 当前时间，单调递增即可
+     */
+    public void onScrolled(long nowMillis) {
+        mLastScrollMillis = nowMillis;
+    }
+
+    /**
+     * @return 是否需要绘制，不可见时完全停止
+     */
+    public boolean shouldRender() {
+        return mVisible;
+    }
+
+    /**
+     * @param nowMillis 当前时间
+     * @return 桌面是否正在滑动
+     */
+    public boolean isScrolling(long nowMillis) {
+        return nowMillis - mLastScrollMillis < SCROLL_IDLE_MILLIS;
+    }
+
+    /**
+     * @return 当前应使用的走时模式，灭屏时降到每分钟刷新一次
+     */
+    public int getTickMode() {
+        return mScreenOn ? mTickMode : FrameScheduler.MODE_MINUTE;
+    }
+
+    /**
+     * @param nowMillis 当前时间
+     * @return 当前应使用的最大帧率，桌面滑动时限制在 {@link #SCROLLING_MAX_FPS}
+     */
+    public int getMaxFps(long nowMillis) {
+        if (!isScrolling(nowMillis)) {
+            return mMaxFps;
+        }
+        return mMaxFps > 0 ? Math.min(mMaxFps, SCROLLING_MAX_FPS) : SCROLLING_MAX_FPS;
+    }
+
+    /**
+     * 把桌面的滑动偏移映射为倾斜比例，代替触摸
+     *
+     * @param offset     桌面偏移，范围[0, 1]
+     * @param offsetStep 每一屏的偏移步长，小于等于0表示只有一屏
+     * @return 倾斜比例，范围[-1, 1]，中间一屏为0
+     */
+    public static float offsetToPercent(float offset, float offsetStep) {
+        if (offsetStep <= 0 || offsetStep >= 1) {
+            return 0;
+        }
+        float percent = (offset - 0.5f) * 2;
+        if (percent > 1) {
+            percent = 1;
+        } else if (percent < -1) {
+            percent = -1;
+        }
+        return percent;
+    }
+}
@@ -0,0 +1,185 @@
+package com.monkey.miclockview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 触摸、松手复原、晃动插值和每帧角度计算都不应该分配对象
+ * 借助 HotSpot 的线程分配计数统计一段代码分配的字节数，一旦重新引入分配就会失败
+ */
+public class AllocationTest {
+
+    /* 预热时完整执行的轮数，足够让热点方法经过JIT编译，逃逸分析生效后再统计 */
+    private static final int WARM_UP_RUNS = 5;
+    private static final int ITERATIONS = 100000;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private long mThreadId;
+    private float mSink;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void touchPathDoesNotAllocate() {
+        final ClockTilt tilt = new ClockTilt();
+        tilt.setRadius(352);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    tilt.touch(i % 900 - 450, 450 - i % 900);
+                    mSink += tilt.getCameraRotateX() + tilt.getCanvasTranslateY();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void coalescedTouchDoesNotAllocate() {
+        final ClockTilt tilt = new ClockTilt();
+        tilt.setRadius(352);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    tilt.setTouchPoint(i % 900 - 450, 450 - i % 900);
+                    if (i % 4 == 0) {
+                        tilt.applyPendingTouch();
+                    }
+                    mSink += tilt.getCameraRotateX();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void releasePathDoesNotAllocate() {
+        final ClockTilt tilt = new ClockTilt();
+        final ShakeInterpolator interpolator = new ShakeInterpolator();
+        tilt.setRadius(352);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    if (i % 60 == 0) {
+                        tilt.touch(200, -100);
+                        tilt.startRelease();
+                    }
+                    tilt.updateRelease(interpolator.getInterpolation(i % 60 / 60f));
+                    mSink += tilt.getCameraRotateY();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void springReleaseDoesNotAllocate() {
+        final ClockTilt tilt = new ClockTilt();
+        final ClockSpring spring = new ClockSpring();
+        tilt.setRadius(352);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    if (!spring.isRunning()) {
+                        spring.start(0.7f, -0.3f, 4, 2);
+                    }
+                    spring.advance(16666667L);
+                    tilt.setPercent(spring.getX(), spring.getY());
+                    mSink += tilt.getCameraRotateY();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void metricsDoNotAllocate() {
+        final ClockMetrics metrics = new ClockMetrics();
+        final ClockMetrics.Snapshot out = new ClockMetrics.Snapshot();
+        metrics.setOnReportListener(new ClockMetrics.OnReportListener() {
+            @Override
+            public void onReport(ClockMetrics.Snapshot snapshot) {
+                mSink += snapshot.getPercentileNanos(ClockMetrics.PHASE_FRAME, 99);
+            }
+        }, 60);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long t = metrics.start();
+                    t = metrics.lap(ClockMetrics.PHASE_SCALE_LINE, t);
+                    metrics.lap(ClockMetrics.PHASE_FRAME, t);
+                    metrics.onFrameRendered();
+                    if (i % 1000 == 0) {
+                        mSink += metrics.snapshot(out).getMaxNanos(ClockMetrics.PHASE_FRAME);
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void timeDegreeDoesNotAllocate() {
+        final TimeSource source = SystemTimeSource.getDefault();
+        final ClockAngles angles = new ClockAngles();
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    angles.set(source.localTimeMillis(), FrameScheduler.MODE_SMOOTH);
+                    mSink += angles.getSecondDegree();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void scaleLineRebuildReusesArray() {
+        final float[] pts = new float[ScaleLineMesh.DEFAULT_COUNT * 4];
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS / 100; i++) {
+                    mSink += ScaleLineMesh.build(400, 400, 100, 140, ScaleLineMesh.DEFAULT_COUNT, pts)[0];
+                }
+            }
+        });
+    }
+
+    /**
+     * 单独预热若干轮，再执行一轮并统计分配的字节数，扣除统计本身的开销
+     */
+    private void assertNoAllocation(Runnable body) {
+        Runnable empty = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            body.run();
+            measure(empty);
+        }
+        long overhead = measure(empty);
+        long allocated = measure(body) - overhead;
+        assertEquals("bytes allocated", 0, Math.max(0, allocated));
+    }
+
+    private long measure(Runnable body) {
+        long before = mThreadBean.getThreadAllocatedBytes(mThreadId);
+        body.run();
+        return mThreadBean.getThreadAllocatedBytes(mThreadId) - before;
+    }
+}
@@ -0,0 +1,66 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 校验常亮模式的颜色削减和防烧屏位移
+ */
+public class ClockAmbientTest {
+
+    @Test
+    public void reducesToOpaqueGrayLevels() {
+        assertEquals(0xffffffff, ClockAmbient.reduceColor(0xffffffff));
+        assertEquals(0xff000000, ClockAmbient.reduceColor(0xff000000));
+        //半透明白色叠在黑色上是中灰
+        int gray = ClockAmbient.reduceColor(0x80ffffff) & 0xff;
+        assertTrue(gray > 100 && gray < 160);
+        //完全透明等于背景
+        assertEquals(0xff000000, ClockAmbient.reduceColor(0x00ffffff));
+        Set<Integer> levels = new HashSet<>();
+        for (int c = 0; c <= 0xff; c++) {
+            levels.add(ClockAmbient.reduceColor(0xff000000 | c << 16 | c << 8 | c));
+        }
+        assertEquals(ClockAmbient.GRAY_LEVELS, levels.size());
+    }
+
+    @Test
+    public void burnInOffsetStaysInRangeAndMovesOnePixel() {
+        int max = 3;
+        int lastX = ClockAmbient.burnInOffsetX(-100, max);
+        int lastY = ClockAmbient.burnInOffsetY(-100, max);
+        for (long minute = -99; minute < 1000; minute++) {
+            int x = ClockAmbient.burnInOffsetX(minute, max);
+            int y = ClockAmbient.burnInOffsetY(minute, max);
+            assertTrue(Math.abs(x) <= max && Math.abs(y) <= max);
+            assertTrue(Math.abs(x - lastX) + Math.abs(y - lastY) <= 2);
+            lastX = x;
+            lastY = y;
+        }
+    }
+
+    @Test
+    public void burnInOffsetCoversEveryColumnAndRow() {
+        int max = 2;
+        boolean[] xs = new boolean[2 * max + 1];
+        boolean[] ys = new boolean[2 * max + 1];
+        for (long minute = 0; minute < 4 * max * 4 * max; minute++) {
+            xs[ClockAmbient.burnInOffsetX(minute, max) + max] = true;
+            ys[ClockAmbient.burnInOffsetY(minute, max) + max] = true;
+        }
+        for (int i = 0; i < xs.length; i++) {
+            assertTrue(xs[i] && ys[i]);
+        }
+    }
+
+    @Test
+    public void zeroShiftDisables() {
+        assertEquals(0, ClockAmbient.burnInOffsetX(12345, 0));
+        assertEquals(0, ClockAmbient.burnInOffsetY(12345, 0));
+    }
+}
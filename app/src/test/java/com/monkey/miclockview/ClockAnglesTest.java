@@ -0,0 +1,104 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用固定的时间来源校验时分秒针的角度
+ */
+public class ClockAnglesTest {
+
+    /**
+     * 返回固定本地时间的时间来源
+     */
+    private static class FakeTimeSource implements TimeSource {
+        long mLocalTimeMillis;
+
+        FakeTimeSource(int hour, int minute, int second, int millis) {
+            mLocalTimeMillis = ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+        }
+
+        @Override
+        public long localTimeMillis() {
+            return mLocalTimeMillis;
+        }
+
+        @Override
+        public void onTimeChanged() {
+        }
+    }
+
+    private final ClockAngles mAngles = new ClockAngles();
+
+    @Test
+    public void threeOClock() {
+        mAngles.set(new FakeTimeSource(15, 0, 0, 0).localTimeMillis(), FrameScheduler.MODE_SMOOTH);
+        assertEquals(90, mAngles.getHourDegree(), 1e-3f);
+        assertEquals(0, mAngles.getMinuteDegree(), 1e-3f);
+        assertEquals(0, mAngles.getSecondDegree(), 1e-3f);
+    }
+
+    @Test
+    public void smoothModeKeepsMillis() {
+        mAngles.set(new FakeTimeSource(10, 30, 15, 500).localTimeMillis(), FrameScheduler.MODE_SMOOTH);
+        assertEquals(15.5f * 6, mAngles.getSecondDegree(), 1e-3f);
+        assertEquals((30 + 15.5f / 60) * 6, mAngles.getMinuteDegree(), 1e-3f);
+        assertEquals((10 + (30 + 15.5f / 60) / 60) * 30, mAngles.getHourDegree(), 1e-3f);
+    }
+
+    @Test
+    public void steppedModeDropsMillis() {
+        mAngles.set(new FakeTimeSource(10, 30, 15, 999).localTimeMillis(), FrameScheduler.MODE_STEPPED);
+        assertEquals(15 * 6, mAngles.getSecondDegree(), 1e-3f);
+    }
+
+    @Test
+    public void minuteModeDropsSeconds() {
+        mAngles.set(new FakeTimeSource(10, 30, 15, 999).localTimeMillis(), FrameScheduler.MODE_MINUTE);
+        assertEquals(0, mAngles.getSecondDegree(), 1e-3f);
+        assertEquals(30 * 6, mAngles.getMinuteDegree(), 1e-3f);
+    }
+
+    @Test
+    public void beforeEpochWrapsForward() {
+        mAngles.set(-60 * 60 * 1000L, FrameScheduler.MODE_SMOOTH);
+        assertEquals(11 * 30, mAngles.getHourDegree(), 1e-3f);
+    }
+
+    @Test
+    public void systemSourceMatchesTimeZoneOffset() {
+        TimeZone zone = TimeZone.getTimeZone("Asia/Shanghai");
+        long before = System.currentTimeMillis();
+        long local = new SystemTimeSource(zone).localTimeMillis();
+        long after = System.currentTimeMillis();
+        long offset = zone.getOffset(before);
+        assertTrue(local >= before + offset && local <= after + offset);
+    }
+
+    @Test
+    public void findsNextDaylightSavingTransition() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        //2026-10-01T00:00Z 之后的下一个切换点是 2026-11-01T06:00Z
+        long from = 1790812800000L;
+        assertEquals(1793512800000L, SystemTimeSource.nextTransition(zone, from));
+    }
+
+    @Test
+    public void zonesShareOneUtcReading() {
+        //2026-10-01T00:00Z，纽约夏令时 20:00，东京 09:00
+        long utc = 1790812800000L;
+        ClockZone newYork = new ClockZone(TimeZone.getTimeZone("America/New_York"), 0, 0);
+        ClockZone tokyo = new ClockZone(TimeZone.getTimeZone("Asia/Tokyo"), 0, 0);
+        newYork.update(utc, FrameScheduler.MODE_SMOOTH);
+        tokyo.update(utc, FrameScheduler.MODE_SMOOTH);
+        assertEquals(8 * 30, newYork.getAngles().getHourDegree(), 1e-3f);
+        assertEquals(9 * 30, tokyo.getAngles().getHourDegree(), 1e-3f);
+        //跨过夏令时切换点后偏移自动更新，2026-11-02T00:00Z 纽约 19:00
+        newYork.update(utc + 32 * 24 * 60 * 60 * 1000L, FrameScheduler.MODE_SMOOTH);
+        assertEquals(7 * 30, newYork.getAngles().getHourDegree(), 1e-3f);
+    }
+}
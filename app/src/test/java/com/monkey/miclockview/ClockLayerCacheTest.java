@@ -0,0 +1,113 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 校验共享图层缓存的键、引用计数和按预算淘汰
+ * 只用刻度线端点数组占用内存，不依赖Bitmap
+ */
+public class ClockLayerCacheTest {
+
+    private static final int POINTS_BYTES = 800 * 4;
+
+    private static ClockGeometry.Spec spec(int size) {
+        return new ClockGeometry.Spec(size, size, 0, 0, 0, 0, 30);
+    }
+
+    private static ClockLayerCache.Key key(int size) {
+        return new ClockLayerCache.Key(spec(size), 0xffffffff, 0x80ffffff, 0xff237ead, 42, 200, ClockLod.FULL);
+    }
+
+    @Test
+    public void sameKeyShares() {
+        ClockLayerCache cache = new ClockLayerCache(10 * POINTS_BYTES);
+        ClockLayerCache.Layers a = cache.acquire(key(400));
+        ClockLayerCache.Layers b = cache.acquire(key(400));
+        assertSame(a, b);
+        float[] points = new float[800];
+        assertSame(points, a.putScaleLinePoints(points));
+        //后来者填充时拿到先填充的那份
+        assertSame(points, b.putScaleLinePoints(new float[800]));
+        assertEquals(POINTS_BYTES, cache.getBytes());
+        assertNotSame(a, cache.acquire(key(300)));
+    }
+
+    @Test
+    public void keyCoversAllParameters() {
+        ClockLayerCache.Key base = key(400);
+        assertEquals(base, key(400));
+        assertEquals(base.hashCode(), key(400).hashCode());
+        assertNotEqualsKey(base, new ClockLayerCache.Key(spec(400),
+                0xffffffff, 0x80ffffff, 0xff000000, 42, 200, ClockLod.FULL));
+        assertNotEqualsKey(base, new ClockLayerCache.Key(spec(400),
+                0xffffffff, 0x80ffffff, 0xff237ead, 40, 200, ClockLod.FULL));
+        assertNotEqualsKey(base, new ClockLayerCache.Key(spec(400),
+                0xffffffff, 0x80ffffff, 0xff237ead, 42, 60, ClockLod.FULL));
+        assertNotEqualsKey(base, new ClockLayerCache.Key(spec(400),
+                0xffffffff, 0x80ffffff, 0xff237ead, 42, 200, ClockLod.LOW));
+        assertNotEqualsKey(base, new ClockLayerCache.Key(spec(400),
+                0xffffffff, 0x80ffffff, 0xff237ead, 42, 200, ClockLod.FULL, null, ClockNumerals.ROMAN));
+        //padding或文本尺寸不同，几何布局就不同
+        assertNotEqualsKey(base, new ClockLayerCache.Key(new ClockGeometry.Spec(400, 400, 10, 0, 0, 0, 30),
+                0xffffffff, 0x80ffffff, 0xff237ead, 42, 200, ClockLod.FULL));
+        assertNotEqualsKey(base, new ClockLayerCache.Key(new ClockGeometry.Spec(400, 400, 0, 0, 0, 0, 31),
+                0xffffffff, 0x80ffffff, 0xff237ead, 42, 200, ClockLod.FULL));
+    }
+
+    private static void assertNotEqualsKey(ClockLayerCache.Key a, ClockLayerCache.Key b) {
+        assertFalse(a.equals(b));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() {
+        ClockLayerCache cache = new ClockLayerCache(2 * POINTS_BYTES);
+        ClockLayerCache.Layers first = fill(cache, key(100));
+        ClockLayerCache.Layers second = fill(cache, key(200));
+        cache.release(first);
+        cache.release(second);
+        assertEquals(2, cache.size());
+        //再用一次first，second变成最久没用的
+        cache.release(cache.acquire(key(100)));
+        ClockLayerCache.Layers third = fill(cache, key(300));
+        assertEquals(2, cache.size());
+        assertEquals(2 * POINTS_BYTES, cache.getBytes());
+        assertNull(second.getScaleLinePoints());
+        cache.release(third);
+    }
+
+    @Test
+    public void neverEvictsLayersInUse() {
+        ClockLayerCache cache = new ClockLayerCache(POINTS_BYTES);
+        ClockLayerCache.Layers first = fill(cache, key(100));
+        ClockLayerCache.Layers second = fill(cache, key(200));
+        //两组都在用，超出预算也不淘汰
+        assertEquals(2 * POINTS_BYTES, cache.getBytes());
+        cache.release(first);
+        assertEquals(POINTS_BYTES, cache.getBytes());
+        assertNull(first.getScaleLinePoints());
+        cache.release(second);
+        cache.evictAll();
+        assertEquals(0, cache.getBytes());
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseTwiceThrows() {
+        ClockLayerCache cache = new ClockLayerCache(POINTS_BYTES);
+        ClockLayerCache.Layers layers = cache.acquire(key(100));
+        cache.release(layers);
+        cache.release(layers);
+    }
+
+    private static ClockLayerCache.Layers fill(ClockLayerCache cache, ClockLayerCache.Key key) {
+        ClockLayerCache.Layers layers = cache.acquire(key);
+        layers.putScaleLinePoints(new float[800]);
+        return layers;
+    }
+}
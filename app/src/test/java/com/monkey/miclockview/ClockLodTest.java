@@ -0,0 +1,36 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 校验按半径选择细节层级和各层级的刻度线数量
+ */
+public class ClockLodTest {
+
+    @Test
+    public void selectsByRadius() {
+        assertEquals(ClockLod.FULL, ClockLod.select(300, 200, 80));
+        assertEquals(ClockLod.FULL, ClockLod.select(200, 200, 80));
+        assertEquals(ClockLod.MEDIUM, ClockLod.select(199, 200, 80));
+        assertEquals(ClockLod.MEDIUM, ClockLod.select(80, 200, 80));
+        assertEquals(ClockLod.LOW, ClockLod.select(79, 200, 80));
+    }
+
+    @Test
+    public void nonPositiveThresholdDisablesTier() {
+        assertEquals(ClockLod.FULL, ClockLod.select(10, 0, 0));
+        assertEquals(ClockLod.MEDIUM, ClockLod.select(10, 200, 0));
+        //最低层级优先于中等层级
+        assertEquals(ClockLod.LOW, ClockLod.select(10, 0, 80));
+    }
+
+    @Test
+    public void scaleLineCountPerTier() {
+        assertEquals(200, ClockLod.scaleLineCount(ClockLod.FULL, 200));
+        assertEquals(60, ClockLod.scaleLineCount(ClockLod.MEDIUM, 200));
+        assertEquals(24, ClockLod.scaleLineCount(ClockLod.MEDIUM, 24));
+        assertEquals(0, ClockLod.scaleLineCount(ClockLod.LOW, 200));
+    }
+}
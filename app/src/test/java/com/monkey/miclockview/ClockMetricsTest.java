@@ -0,0 +1,78 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 校验绘制开销统计的直方图、帧数和定期汇报
+ */
+public class ClockMetricsTest {
+
+    @Test
+    public void bucketsArePowersOfTwoMicros() {
+        assertEquals(0, ClockMetrics.bucketOf(999));
+        assertEquals(1, ClockMetrics.bucketOf(1000));
+        assertEquals(1, ClockMetrics.bucketOf(1999));
+        assertEquals(2, ClockMetrics.bucketOf(2000));
+        assertEquals(11, ClockMetrics.bucketOf(1024 * 1000));
+        assertEquals(ClockMetrics.BUCKET_COUNT - 1, ClockMetrics.bucketOf(Long.MAX_VALUE));
+        for (int i = 0; i < ClockMetrics.BUCKET_COUNT - 1; i++) {
+            //桶的上界落在下一个桶里
+            assertEquals(i + 1, ClockMetrics.bucketOf(ClockMetrics.bucketUpperBoundNanos(i)));
+        }
+    }
+
+    @Test
+    public void recordsPhaseStatistics() {
+        ClockMetrics metrics = new ClockMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.record(ClockMetrics.PHASE_SCALE_LINE, 100 * 1000);
+        }
+        metrics.record(ClockMetrics.PHASE_SCALE_LINE, 5 * 1000 * 1000);
+        ClockMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(100, snapshot.getCount(ClockMetrics.PHASE_SCALE_LINE));
+        assertEquals(0, snapshot.getCount(ClockMetrics.PHASE_FRAME));
+        assertEquals(5 * 1000 * 1000, snapshot.getMaxNanos(ClockMetrics.PHASE_SCALE_LINE));
+        assertEquals((99 * 100 * 1000 + 5 * 1000 * 1000) / 100,
+                snapshot.getAverageNanos(ClockMetrics.PHASE_SCALE_LINE));
+        //100微秒落在[64, 128)微秒的桶
+        assertEquals(128 * 1000, snapshot.getPercentileNanos(ClockMetrics.PHASE_SCALE_LINE, 50));
+        assertEquals(128 * 1000, snapshot.getPercentileNanos(ClockMetrics.PHASE_SCALE_LINE, 99));
+        assertEquals(5 * 1000 * 1000, snapshot.getPercentileNanos(ClockMetrics.PHASE_SCALE_LINE, 100));
+    }
+
+    @Test
+    public void reportsEveryIntervalWithReusedSnapshot() {
+        ClockMetrics metrics = new ClockMetrics();
+        final ClockMetrics.Snapshot[] last = new ClockMetrics.Snapshot[1];
+        final int[] reports = new int[1];
+        metrics.setOnReportListener(new ClockMetrics.OnReportListener() {
+            @Override
+            public void onReport(ClockMetrics.Snapshot snapshot) {
+                if (last[0] != null) {
+                    assertSame(last[0], snapshot);
+                }
+                last[0] = snapshot;
+                reports[0]++;
+            }
+        }, 10);
+        for (int i = 0; i < 35; i++) {
+            metrics.onFrameSkipped();
+            metrics.onFrameRendered();
+        }
+        metrics.onReleaseFrame();
+        assertEquals(3, reports[0]);
+        assertEquals(30, last[0].getFramesRendered());
+        ClockMetrics.Snapshot now = metrics.snapshot(new ClockMetrics.Snapshot());
+        assertNotSame(last[0], now);
+        assertEquals(35, now.getFramesRendered());
+        assertEquals(35, now.getFramesSkipped());
+        assertEquals(1, now.getReleaseFrames());
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getFramesRendered());
+    }
+}
@@ -0,0 +1,73 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * 校验内置的小时文本、本地化数字和自定义文本
+ */
+public class ClockNumeralsTest {
+
+    @Test
+    public void classicDrawsQuartersOnly() {
+        for (int i = 0; i < ClockNumerals.COUNT; i++) {
+            if (i % 3 == 0) {
+                assertEquals(String.valueOf(i == 0 ? 12 : i), ClockNumerals.CLASSIC.getLabel(i));
+            } else {
+                assertNull(ClockNumerals.CLASSIC.getLabel(i));
+            }
+        }
+    }
+
+    @Test
+    public void builtInSetsStartAtTwelve() {
+        assertEquals("12", ClockNumerals.ARABIC.getLabel(0));
+        assertEquals("1", ClockNumerals.ARABIC.getLabel(1));
+        assertEquals("11", ClockNumerals.ARABIC.getLabel(11));
+        assertEquals("XII", ClockNumerals.ROMAN.getLabel(0));
+        assertEquals("IV", ClockNumerals.ROMAN.getLabel(4));
+        assertEquals("١٢", ClockNumerals.ARABIC_INDIC.getLabel(0));
+        assertEquals("٩", ClockNumerals.ARABIC_INDIC.getLabel(9));
+        assertEquals("١٠", ClockNumerals.ARABIC_INDIC.getLabel(10));
+    }
+
+    @Test
+    public void localeDigits() {
+        assertEquals(ClockNumerals.ARABIC, ClockNumerals.forLocale(Locale.US));
+    }
+
+    @Test
+    public void customLabelsAreCopiedAndCompared() {
+        String[] labels = {"12", "", null, "3", "", "", "6", "", "", "9", "", ""};
+        ClockNumerals numerals = ClockNumerals.of(labels);
+        labels[0] = "changed";
+        assertEquals("12", numerals.getLabel(0));
+        assertNull(numerals.getLabel(1));
+        assertEquals(ClockNumerals.CLASSIC, numerals);
+        assertEquals(ClockNumerals.CLASSIC.hashCode(), numerals.hashCode());
+        assertFalse(ClockNumerals.CLASSIC.equals(ClockNumerals.ARABIC));
+    }
+
+    @Test
+    public void rejectsWrongCount() {
+        try {
+            ClockNumerals.of("12", "3", "6", "9");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void attributeValuesMapToBuiltIns() {
+        assertEquals(ClockNumerals.CLASSIC, ClockNumerals.fromAttribute(0));
+        assertEquals(ClockNumerals.ARABIC, ClockNumerals.fromAttribute(1));
+        assertEquals(ClockNumerals.ROMAN, ClockNumerals.fromAttribute(2));
+        assertEquals(ClockNumerals.ARABIC_INDIC, ClockNumerals.fromAttribute(3));
+    }
+}
@@ -0,0 +1,156 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 校验皮肤格式的解析、默认值和资源中的经典皮肤
+ */
+public class ClockSkinTest {
+
+    @Test
+    public void parsesOutline() {
+        ClockSkin.Outline outline = ClockSkin.Outline.parse("M-0.018,c-0.03 L-0.009,d0.48 Q0,d0.46 0.009,d0.48 Z");
+        assertArrayEquals(new byte[]{ClockSkin.OP_MOVE, ClockSkin.OP_LINE, ClockSkin.OP_QUAD, ClockSkin.OP_CLOSE},
+                outline.ops);
+        assertArrayEquals(new float[]{-0.018f, -0.03f, -0.009f, 0.48f, 0f, 0.46f, 0.009f, 0.48f},
+                outline.points, 0);
+        assertArrayEquals(new byte[]{ClockSkin.ANCHOR_CENTER, ClockSkin.ANCHOR_DIAL,
+                ClockSkin.ANCHOR_DIAL, ClockSkin.ANCHOR_DIAL}, outline.anchors);
+    }
+
+    @Test
+    public void commandMaySeparateFromPoint() {
+        ClockSkin.Outline outline = ClockSkin.Outline.parse("  M 0,d0.26\tL -0.05,d0.34 Z ");
+        assertArrayEquals(new byte[]{ClockSkin.OP_MOVE, ClockSkin.OP_LINE, ClockSkin.OP_CLOSE}, outline.ops);
+        assertArrayEquals(new float[]{0f, 0.26f, -0.05f, 0.34f}, outline.points, 0);
+    }
+
+    @Test
+    public void rejectsMalformedOutlines() {
+        String[] bad = {
+                "",
+                "L0,c0 Z",
+                "M0,c0 X1,c1",
+                "M0,0",
+                "M0,x0",
+                "M0,c",
+                "M0,c0 Q1,c1",
+                "M0,c0 Z 1,c1",
+                "M0,c0 L1,cabc",
+        };
+        for (String path : bad) {
+            try {
+                ClockSkin.Outline.parse(path);
+                fail("accepted: " + path);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void omittedValuesFallBackToClassic() {
+        Map<String, String> values = new HashMap<>();
+        values.put("scaleLineCount", "60");
+        values.put("lightColor", "#ffb300");
+        ClockSkin skin = ClockSkin.parse("test", values);
+        assertEquals(60, skin.getScaleLineCount());
+        assertEquals(0xffffb300, skin.getLightColor());
+        assertEquals(ClockSkin.CLASSIC.getDarkColor(), skin.getDarkColor());
+        assertEquals(ClockSkin.CLASSIC.getPaddingRatio(), skin.getPaddingRatio(), 0);
+        assertOutlineEquals(ClockSkin.CLASSIC.getHourHand(), skin.getHourHand());
+    }
+
+    @Test
+    public void classicMatchesOriginalDial() {
+        ClockSkin skin = ClockSkin.CLASSIC;
+        assertEquals(ScaleLineMesh.DEFAULT_COUNT, skin.getScaleLineCount());
+        assertEquals(0.12f, skin.getPaddingRatio(), 0);
+        assertEquals(0.12f, skin.getScaleLengthRatio(), 0);
+        assertEquals(0.012f, skin.getScaleLineWidthRatio(), 0);
+        assertEquals(0.03f, skin.getHubRadiusRatio(), 0);
+        assertEquals(0xffffffff, skin.getLightColor());
+        assertEquals(0x80ffffff, skin.getDarkColor());
+        assertEquals(0xff237ead, skin.getBackgroundColor());
+        assertArrayEquals(new float[]{0f, 0.26f, -0.05f, 0.34f, 0.05f, 0.34f}, skin.getSecondHand().points, 0);
+    }
+
+    @Test
+    public void rejectsUnknownAttributesAndBadValues() {
+        assertRejected("hourHandd", "M0,c0 Z");
+        assertRejected("paddingRatio", "1.5");
+        assertRejected("scaleLineCount", "-1");
+        assertRejected("lightColor", "ffffff");
+        assertRejected("lightColor", "#fff");
+    }
+
+    @Test
+    public void classicResourceMatchesBuiltIn() throws Exception {
+        ClockSkin skin = ClockSkin.parse("classic", readSkinXml("clock_skin_classic"));
+        ClockSkin classic = ClockSkin.CLASSIC;
+        assertEquals(classic.getScaleLineCount(), skin.getScaleLineCount());
+        assertEquals(classic.getPaddingRatio(), skin.getPaddingRatio(), 0);
+        assertEquals(classic.getScaleLengthRatio(), skin.getScaleLengthRatio(), 0);
+        assertEquals(classic.getScaleLineWidthRatio(), skin.getScaleLineWidthRatio(), 0);
+        assertEquals(classic.getHubRadiusRatio(), skin.getHubRadiusRatio(), 0);
+        assertEquals(classic.getHourHubWidthRatio(), skin.getHourHubWidthRatio(), 0);
+        assertEquals(classic.getMinuteHubWidthRatio(), skin.getMinuteHubWidthRatio(), 0);
+        assertEquals(classic.getLightColor(), skin.getLightColor());
+        assertEquals(classic.getDarkColor(), skin.getDarkColor());
+        assertEquals(classic.getBackgroundColor(), skin.getBackgroundColor());
+        assertOutlineEquals(classic.getHourHand(), skin.getHourHand());
+        assertOutlineEquals(classic.getMinuteHand(), skin.getMinuteHand());
+        assertOutlineEquals(classic.getSecondHand(), skin.getSecondHand());
+        assertOutlineEquals(classic.getHourHandSimple(), skin.getHourHandSimple());
+        assertOutlineEquals(classic.getMinuteHandSimple(), skin.getMinuteHandSimple());
+    }
+
+    @Test
+    public void bundledSkinsParse() throws Exception {
+        ClockSkin slim = ClockSkin.parse("slim", readSkinXml("clock_skin_slim"));
+        assertEquals(60, slim.getScaleLineCount());
+    }
+
+    private static void assertRejected(String key, String value) {
+        try {
+            ClockSkin.parse("bad", Collections.singletonMap(key, value));
+            fail("accepted " + key + "=" + value);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertOutlineEquals(ClockSkin.Outline expected, ClockSkin.Outline actual) {
+        assertArrayEquals(expected.ops, actual.ops);
+        assertArrayEquals(expected.points, actual.points, 0);
+        assertArrayEquals(expected.anchors, actual.anchors);
+    }
+
+    /**
+     * 单元测试的工作目录是模块目录，直接读源码中的资源文件
+     */
+    private static Map<String, String> readSkinXml(String name) throws Exception {
+        File file = new File("src/main/res/xml/" + name + ".xml");
+        Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file).getDocumentElement();
+        assertEquals("clock-skin", root.getTagName());
+        Map<String, String> values = new HashMap<>();
+        NamedNodeMap attributes = root.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            values.put(attribute.getNodeName(), attribute.getNodeValue());
+        }
+        return values;
+    }
+}
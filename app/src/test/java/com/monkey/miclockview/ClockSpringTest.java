@@ -0,0 +1,75 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 校验松手回弹的弹簧和经典晃动曲线的查找表
+ */
+public class ClockSpringTest {
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    @Test
+    public void settlesToExactlyZeroAndStops() {
+        ClockSpring spring = new ClockSpring();
+        spring.start(0.8f, -0.5f, 0, 0);
+        int frames = 0;
+        while (spring.advance(FRAME_NANOS)) {
+            frames++;
+            assertTrue("spring never settles", frames < 60 * 10);
+        }
+        assertEquals(0f, spring.getX(), 0f);
+        assertEquals(0f, spring.getY(), 0f);
+        assertFalse(spring.isRunning());
+        //停下后不再运动
+        assertFalse(spring.advance(FRAME_NANOS));
+    }
+
+    @Test
+    public void resultDoesNotDependOnFrameRate() {
+        ClockSpring at60 = new ClockSpring();
+        ClockSpring at120 = new ClockSpring();
+        at60.start(0.6f, 0.2f, 3, -2);
+        at120.start(0.6f, 0.2f, 3, -2);
+        for (int i = 0; i < 30; i++) {
+            at60.advance(FRAME_NANOS);
+            at120.advance(FRAME_NANOS / 2);
+            at120.advance(FRAME_NANOS - FRAME_NANOS / 2);
+        }
+        assertEquals(at60.getX(), at120.getX(), 0f);
+        assertEquals(at60.getY(), at120.getY(), 0f);
+    }
+
+    @Test
+    public void velocityCarriesThroughZero() {
+        ClockSpring still = new ClockSpring();
+        ClockSpring flung = new ClockSpring();
+        still.start(0.5f, 0, 0, 0);
+        //向中心甩出，越过0到另一侧
+        flung.start(0.5f, 0, -10, 0);
+        float stillMin = 0;
+        float flungMin = 0;
+        for (int i = 0; i < 20; i++) {
+            still.advance(FRAME_NANOS);
+            flung.advance(FRAME_NANOS);
+            stillMin = Math.min(stillMin, still.getX());
+            flungMin = Math.min(flungMin, flung.getX());
+        }
+        assertTrue(flungMin < stillMin);
+    }
+
+    @Test
+    public void shakeTableMatchesCurve() {
+        ShakeInterpolator interpolator = new ShakeInterpolator();
+        for (int i = 0; i <= 1000; i++) {
+            float input = i / 1000f;
+            assertEquals(ShakeInterpolator.evaluate(input), interpolator.getInterpolation(input), 1e-3f);
+        }
+        assertEquals(1f, interpolator.getInterpolation(1), 0f);
+        assertEquals(1f, interpolator.getInterpolation(2), 0f);
+    }
+}
@@ -0,0 +1,81 @@
+package com.monkey.miclockview;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 校验共用驱动因帧率限制跳过的帧计入各时钟自己的统计
+ * 驱动的调度器需要主线程的Looper，在Robolectric下运行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ClockTickDriverTest {
+
+    private final List<ClockTickDriver.Client> mRegistered = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        //驱动是进程内单例，不能把时钟留给其他测试
+        for (ClockTickDriver.Client client : mRegistered) {
+            ClockTickDriver.getInstance().unregister(client);
+        }
+    }
+
+    @Test
+    public void skippedFramesReachSmoothClients() {
+        ClockMetrics smooth = new ClockMetrics();
+        ClockMetrics stepped = new ClockMetrics();
+        register(FrameScheduler.MODE_SMOOTH, 30, smooth);
+        register(FrameScheduler.MODE_STEPPED, 0, stepped);
+        register(FrameScheduler.MODE_SMOOTH, 30, null);
+        ClockTickDriver driver = ClockTickDriver.getInstance();
+        driver.onFrameSkipped();
+        driver.onFrameSkipped();
+        assertEquals(2, smooth.snapshot().getFramesSkipped());
+        //跳秒模式的时钟自己调度时不会因帧率限制跳帧，共用驱动时也不计
+        assertEquals(0, stepped.snapshot().getFramesSkipped());
+    }
+
+    @Test
+    public void sharedMetricsCountEachClock() {
+        //不共用驱动时每个时钟的调度器各自计数，共用驱动时保持一致
+        ClockMetrics metrics = new ClockMetrics();
+        register(FrameScheduler.MODE_SMOOTH, 30, metrics);
+        register(FrameScheduler.MODE_SMOOTH, 30, metrics);
+        ClockTickDriver.getInstance().onFrameSkipped();
+        assertEquals(2, metrics.snapshot().getFramesSkipped());
+    }
+
+    private void register(final int tickMode, final int maxFps, final ClockMetrics metrics) {
+        ClockTickDriver.Client client = new ClockTickDriver.Client() {
+            @Override
+            public int getTickMode() {
+                return tickMode;
+            }
+
+            @Override
+            public int getMaxFps() {
+                return maxFps;
+            }
+
+            @Override
+            public void onClockTick(ClockAngles angles) {
+            }
+
+            @Override
+            public ClockMetrics getMetrics() {
+                return metrics;
+            }
+        };
+        ClockTickDriver.getInstance().register(client);
+        mRegistered.add(client);
+    }
+}
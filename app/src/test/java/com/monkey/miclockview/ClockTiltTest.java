@@ -0,0 +1,47 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 校验记下的触摸坐标在绘制前合并换算
+ */
+public class ClockTiltTest {
+
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void pendingTouchResolvesToLatestPoint() {
+        ClockTilt expected = new ClockTilt();
+        expected.setRadius(352);
+        expected.touch(120, -80);
+
+        ClockTilt tilt = new ClockTilt();
+        tilt.setRadius(352);
+        tilt.setTouchPoint(10, 10);
+        tilt.setTouchPoint(-300, 40);
+        tilt.setTouchPoint(120, -80);
+        //换算之前倾斜状态不变
+        assertEquals(0, tilt.getCameraRotateX(), DELTA);
+        tilt.applyPendingTouch();
+        assertEquals(expected.getCameraRotateX(), tilt.getCameraRotateX(), DELTA);
+        assertEquals(expected.getCameraRotateY(), tilt.getCameraRotateY(), DELTA);
+        assertEquals(expected.getCanvasTranslateX(), tilt.getCanvasTranslateX(), DELTA);
+        assertEquals(expected.getCanvasTranslateY(), tilt.getCanvasTranslateY(), DELTA);
+    }
+
+    @Test
+    public void releaseStartsFromLastPendingTouch() {
+        ClockTilt tilt = new ClockTilt();
+        tilt.setRadius(352);
+        tilt.setTouchPoint(352, 0);
+        tilt.startRelease();
+        tilt.updateRelease(0);
+        assertEquals(ClockTilt.DEFAULT_MAX_CAMERA_ROTATE, tilt.getCameraRotateY(), DELTA);
+        //换算过的触摸不会在下一帧覆盖复原动画
+        tilt.updateRelease(1);
+        tilt.applyPendingTouch();
+        assertEquals(0, tilt.getCameraRotateY(), DELTA);
+    }
+}
@@ -0,0 +1,42 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 校验桌面小部件的Bitmap尺寸上限和整分刷新时间
+ */
+public class ClockWidgetLayoutTest {
+
+    @Test
+    public void bitmapSideUsesShorterEdge() {
+        assertEquals(200, ClockWidgetLayout.bitmapSide(300, 200, ClockWidgetLayout.MAX_BITMAP_BYTES));
+        assertEquals(0, ClockWidgetLayout.bitmapSide(0, 200, ClockWidgetLayout.MAX_BITMAP_BYTES));
+    }
+
+    @Test
+    public void bitmapFitsTransactionBudget() {
+        int side = ClockWidgetLayout.bitmapSide(2000, 2000, ClockWidgetLayout.MAX_BITMAP_BYTES);
+        assertTrue(side > 0);
+        assertTrue((long) side * side * 4 <= ClockWidgetLayout.MAX_BITMAP_BYTES);
+        assertEquals(362, side);
+    }
+
+    @Test
+    public void dpToPx() {
+        assertEquals(110, ClockWidgetLayout.dpToPx(110, 1));
+        assertEquals(330, ClockWidgetLayout.dpToPx(110, 3));
+        assertEquals(289, ClockWidgetLayout.dpToPx(110, 2.625f));
+    }
+
+    @Test
+    public void nextMinuteBoundary() {
+        assertEquals(60000, ClockWidgetLayout.nextMinuteBoundary(0));
+        assertEquals(60000, ClockWidgetLayout.nextMinuteBoundary(59999));
+        assertEquals(120000, ClockWidgetLayout.nextMinuteBoundary(60000));
+        assertEquals(0, ClockWidgetLayout.nextMinuteBoundary(-1));
+        assertEquals(-60000, ClockWidgetLayout.nextMinuteBoundary(-60001));
+    }
+}
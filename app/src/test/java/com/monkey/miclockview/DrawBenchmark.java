@@ -0,0 +1,168 @@
+package com.monkey.miclockview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 在Robolectric的原生图形下把整个onDraw画到Bitmap上，统计每帧的耗时和分配的字节数
+ * 需要真实Path、Canvas的几何布局构建也在这里测
+ * 默认的单元测试不运行，用 ./gradlew :app:testDebugUnitTest -Pbenchmark --tests '*DrawBenchmark' 运行，
+ * 结果以JSON写到 app/build/reports/benchmarks/draw.json
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class DrawBenchmark {
+
+    private static final int SIZE = 800;
+    private static final int WARM_UP = 200;
+    private static final int FRAMES = 1000;
+
+    /* 所有结果，全部跑完后一起写出 */
+    private static final List<String> sResults = new ArrayList<>();
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        mBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @Test
+    public void drawDefault() {
+        measureDraw("onDraw.default", newView());
+    }
+
+    @Test
+    public void drawCachedScaleRing() {
+        MiClockView view = newView();
+        view.setScaleRingCached(true);
+        measureDraw("onDraw.cacheScaleRing", view);
+    }
+
+    @Test
+    public void drawLowDetail() {
+        MiClockView view = newView();
+        view.setLodThresholds(SIZE, SIZE);
+        measureDraw("onDraw.lodLow", view);
+    }
+
+    @Test
+    public void drawAmbient() {
+        MiClockView view = newView();
+        view.setAmbient(true);
+        measureDraw("onDraw.ambient", view);
+    }
+
+    @Test
+    public void drawAmbientAllNumerals() {
+        //常亮模式直接画文本，12个数字也只按缓存的位置drawText
+        MiClockView view = newView();
+        view.setNumerals(ClockNumerals.ARABIC);
+        view.setAmbient(true);
+        measureDraw("onDraw.ambientArabicNumerals", view);
+    }
+
+    @Test
+    public void drawWithMetrics() {
+        MiClockView view = newView();
+        view.setMetrics(new ClockMetrics());
+        measureDraw("onDraw.metrics", view);
+    }
+
+    @Test
+    public void buildGeometry() {
+        final ClockGeometry.Spec spec = new ClockGeometry.Spec(SIZE, SIZE, 0, 0, 0, 0, 30);
+        measure("geometry.build", new Runnable() {
+            @Override
+            public void run() {
+                //绕过驻留，每次都重新构建指针路径
+                new ClockGeometry(spec);
+            }
+        });
+    }
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        File dir = new File(System.getProperty("benchmark.output", "build/reports/benchmarks"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        Writer writer = new FileWriter(new File(dir, "draw.json"));
+        try {
+            writer.write("{\"benchmarks\":[\n");
+            for (int i = 0; i < sResults.size(); i++) {
+                writer.write(sResults.get(i));
+                writer.write(i < sResults.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]}\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private MiClockView newView() {
+        Context context = RuntimeEnvironment.getApplication();
+        MiClockView view = new MiClockView(context);
+        view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+        return view;
+    }
+
+    private void measureDraw(String name, final MiClockView view) {
+        measure(name, new Runnable() {
+            @Override
+            public void run() {
+                view.draw(mCanvas);
+            }
+        });
+    }
+
+    /**
+     * 预热后重复执行，记录每次的平均耗时和分配的字节数
+     */
+    private void measure(String name, Runnable body) {
+        for (int i = 0; i < WARM_UP; i++) {
+            body.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = mThreadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            body.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = mThreadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        String result = String.format(Locale.US,
+                "{\"name\":\"%s\",\"iterations\":%d,\"nsPerOp\":%.1f,\"bytesPerOp\":%.1f}",
+                name, FRAMES, (double) nanos / FRAMES, (double) bytes / FRAMES);
+        System.out.println(result);
+        sResults.add(result);
+    }
+}
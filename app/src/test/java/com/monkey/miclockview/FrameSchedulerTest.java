@@ -0,0 +1,99 @@
+package com.monkey.miclockview;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 校验调度器的帧率限制：动态壁纸桌面滑动时连续的偏移事件最多按 {@link WallpaperFramePolicy#SCROLLING_MAX_FPS} 刷新，
+ * 因帧率限制跳过的vsync会回调给监听
+ * Choreographer需要主线程的Looper，在Robolectric下运行；不让Looper空转，直接用模拟的vsync时间调用doFrame
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class FrameSchedulerTest {
+
+    /* 60Hz屏幕的vsync间隔 */
+    private static final long VSYNC_NANOS = 1000000000L / 60;
+    /* 桌面每个vsync之间发来的偏移事件个数，模拟120Hz的触摸采样 */
+    private static final int EVENTS_PER_VSYNC = 2;
+
+    private int mTicks;
+    private FrameScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new FrameScheduler(new FrameScheduler.OnTickListener() {
+            @Override
+            public void onTick() {
+                mTicks++;
+            }
+        });
+    }
+
+    @Test
+    public void scrollBurstIsCappedInSmoothMode() {
+        assertScrollBurstCapped(FrameScheduler.MODE_SMOOTH, 0);
+    }
+
+    @Test
+    public void scrollBurstIsCappedInSteppedMode() {
+        assertScrollBurstCapped(FrameScheduler.MODE_STEPPED, 0);
+    }
+
+    @Test
+    public void requestedFrameIsNotCapped() {
+        mScheduler.setMaxFps(WallpaperFramePolicy.SCROLLING_MAX_FPS);
+        mScheduler.start();
+        for (int vsync = 1; vsync <= 60; vsync++) {
+            mScheduler.requestFrame();
+            mScheduler.doFrame(vsync * VSYNC_NANOS);
+        }
+        assertEquals(60, mTicks);
+    }
+
+    @Test
+    public void skippedVsyncsReachListener() {
+        final int[] skipped = new int[1];
+        mScheduler.setOnFrameSkippedListener(new FrameScheduler.OnFrameSkippedListener() {
+            @Override
+            public void onFrameSkipped() {
+                skipped[0]++;
+            }
+        });
+        mScheduler.setMaxFps(30);
+        mScheduler.start();
+        for (int vsync = 1; vsync <= 60; vsync++) {
+            mScheduler.doFrame(vsync * VSYNC_NANOS);
+        }
+        assertEquals(60, mTicks + skipped[0]);
+        assertEquals(30, skipped[0]);
+    }
+
+    /**
+     * 与壁纸的 onOffsetsChanged 一样，每个事件先按策略设置帧率再请求刷新，统计一秒内刷新的帧数
+     */
+    private void assertScrollBurstCapped(int tickMode, int maxFps) {
+        WallpaperFramePolicy policy = new WallpaperFramePolicy(tickMode, maxFps);
+        policy.setVisible(true);
+        mScheduler.setMode(policy.getTickMode());
+        mScheduler.start();
+        for (int vsync = 1; vsync <= 60; vsync++) {
+            long nowMillis = vsync * VSYNC_NANOS / 1000000;
+            for (int i = 0; i < EVENTS_PER_VSYNC; i++) {
+                policy.onScrolled(nowMillis);
+                mScheduler.setMaxFps(policy.getMaxFps(nowMillis));
+                mScheduler.requestThrottledFrame();
+            }
+            mScheduler.doFrame(vsync * VSYNC_NANOS);
+        }
+        assertTrue("ticks " + mTicks, mTicks <= WallpaperFramePolicy.SCROLLING_MAX_FPS);
+        //限制帧率的同时仍要跟上滑动，不能饿死
+        assertTrue("ticks " + mTicks, mTicks >= WallpaperFramePolicy.SCROLLING_MAX_FPS - 1);
+    }
+}
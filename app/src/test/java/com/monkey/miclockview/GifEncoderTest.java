@@ -0,0 +1,65 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 用JDK自带的GIF解码器校验流式编码的结果
+ */
+public class GifEncoderTest {
+
+    @Test
+    public void paletteRoundTripsItsOwnColors() {
+        for (int i = 0; i < 6 * 7 * 6; i++) {
+            assertEquals(i, GifEncoder.paletteIndex(GifEncoder.paletteColor(i)));
+        }
+    }
+
+    @Test
+    public void framesDecodeToQuantizedPixels() throws IOException {
+        int width = 160;
+        int height = 120;
+        Random random = new Random(42);
+        int[][] frames = new int[3][width * height];
+        for (int f = 0; f < frames.length; f++) {
+            for (int i = 0; i < width * height; i++) {
+                //前两帧是渐变，最后一帧是噪点，保证字典会被填满并清空
+                frames[f][i] = f < 2 ? 0xff000000 | (i % width) << 16 | (i / width + f * 60) << 8 | 0x80
+                        : random.nextInt();
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GifEncoder encoder = new GifEncoder(out, width, height, 0);
+        for (int[] frame : frames) {
+            encoder.addFrame(frame, 40);
+        }
+        encoder.finish();
+
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(out.toByteArray()));
+        reader.setInput(in);
+        assertEquals(frames.length, reader.getNumImages(true));
+        for (int f = 0; f < frames.length; f++) {
+            BufferedImage image = reader.read(f);
+            assertEquals(width, image.getWidth());
+            assertEquals(height, image.getHeight());
+            for (int i = 0; i < width * height; i++) {
+                int expected = GifEncoder.paletteColor(GifEncoder.paletteIndex(frames[f][i]));
+                assertEquals(expected, image.getRGB(i % width, i / width));
+            }
+        }
+        reader.dispose();
+        in.close();
+    }
+}
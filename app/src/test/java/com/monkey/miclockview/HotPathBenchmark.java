@@ -0,0 +1,116 @@
+package com.monkey.miclockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每帧都会走到的纯Java计算的JMH基准，不需要设备和Robolectric
+ * 运行 ./gradlew :app:jmh，结果以JSON写到 app/build/reports/benchmarks/jmh.json，
+ * 同时用gc分析器记录每次调用分配的字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+    private final TimeSource mTimeSource = SystemTimeSource.getDefault();
+    private final ClockAngles mAngles = new ClockAngles();
+    private final ClockTilt mTilt = new ClockTilt();
+    private final ShakeInterpolator mInterpolator = new ShakeInterpolator();
+    private final ClockSpring mSpring = new ClockSpring();
+    private final ClockMetrics mMetrics = new ClockMetrics();
+    /* 每次调用换一个输入，避免被常量折叠 */
+    private int mStep;
+
+    @Setup
+    public void setUp() {
+        mTilt.setRadius(352);
+    }
+
+    /**
+     * 读取本地时间并计算平滑模式的时分秒针角度，即View中的getTimeDegree
+     */
+    @Benchmark
+    public float timeDegree() {
+        mAngles.set(mTimeSource.localTimeMillis(), FrameScheduler.MODE_SMOOTH);
+        return mAngles.getSecondDegree();
+    }
+
+    /**
+     * 每个触摸事件都立即换算倾斜，即合并之前的做法
+     */
+    @Benchmark
+    public float touch() {
+        int i = mStep++ & 1023;
+        mTilt.touch(i - 512, 512 - i);
+        return mTilt.getCameraRotateX();
+    }
+
+    /**
+     * 240Hz触摸、60Hz刷新，4个事件只换算一次
+     */
+    @Benchmark
+    public float coalescedTouch() {
+        int i = mStep++ & 1023;
+        mTilt.setTouchPoint(i - 512, 512 - i);
+        if ((i & 3) == 0) {
+            mTilt.applyPendingTouch();
+        }
+        return mTilt.getCameraRotateX();
+    }
+
+    /**
+     * 查找表插值的经典晃动曲线
+     */
+    @Benchmark
+    public float shakeInterpolator() {
+        return mInterpolator.getInterpolation((mStep++ & 1023) / 1024f);
+    }
+
+    /**
+     * 直接计算的经典晃动曲线，作为查找表的对照
+     */
+    @Benchmark
+    public float shakeCurve() {
+        return ShakeInterpolator.evaluate((mStep++ & 1023) / 1024f);
+    }
+
+    /**
+     * 弹簧回弹推进一帧
+     */
+    @Benchmark
+    public float springFrame() {
+        if (!mSpring.isRunning()) {
+            mSpring.start(0.7f, -0.3f, 4, 2);
+        }
+        mSpring.advance(16666667L);
+        return mSpring.getX();
+    }
+
+    /**
+     * 开启统计时每帧记录6个阶段的开销
+     */
+    @Benchmark
+    public long metricsFrame() {
+        long t = mMetrics.start();
+        for (int phase = 1; phase < ClockMetrics.PHASE_COUNT; phase++) {
+            t = mMetrics.lap(phase, t);
+        }
+        mMetrics.lap(ClockMetrics.PHASE_FRAME, t);
+        mMetrics.onFrameRendered();
+        return t;
+    }
+}
@@ -0,0 +1,68 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在Linux构建机上无界面批量导出各主题、各尺寸的预览动画和截图
+ * 默认的单元测试不运行，用 ./gradlew :app:testDebugUnitTest -Pexport --tests '*PreviewExport' 运行，
+ * 结果写到 app/build/previews/
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PreviewExport {
+
+    /* 主题名和亮色、暗色、背景色 */
+    private static final String[] THEME_NAMES = {"blue", "night", "light"};
+    private static final int[][] THEME_COLORS = {
+            {0xffffffff, 0x80ffffff, 0xff237ead},
+            {0xffffffff, 0x66ffffff, 0xff000000},
+            {0xff333333, 0x80333333, 0xfff5f5f5},
+    };
+    private static final int[] SIZES = {240, 480, 800};
+    /* 10:08:36开始，帧间隔40毫秒 */
+    private static final long START_MILLIS = ((10 * 60 + 8) * 60 + 36) * 1000L;
+    private static final int FRAME_INTERVAL = 40;
+    private static final int GIF_FRAMES = 75;
+
+    @Test
+    public void exportPreviews() throws IOException, InterruptedException {
+        File root = new File(System.getProperty("export.output", "build/previews"));
+        ClockExportJob.TiltTimeline swipe = ClockExportJob.swipeAndRelease(0.6f, -0.4f, 10, FRAME_INTERVAL);
+        List<ClockExportJob> jobs = new ArrayList<>();
+        for (int t = 0; t < THEME_NAMES.length; t++) {
+            for (int size : SIZES) {
+                String name = THEME_NAMES[t] + "_" + size;
+                //带拖动和回弹的动画
+                ClockExportJob gif = new ClockExportJob(new File(root, name + ".gif"),
+                        ClockExportJob.FORMAT_GIF, size, size);
+                configure(gif, t, size);
+                gif.setTimeline(START_MILLIS, FRAME_INTERVAL, GIF_FRAMES);
+                gif.setTiltTimeline(swipe);
+                jobs.add(gif);
+                //静止的单帧截图
+                ClockExportJob still = new ClockExportJob(new File(root, name),
+                        ClockExportJob.FORMAT_PNG, size, size);
+                configure(still, t, size);
+                still.setTimeline(START_MILLIS, FRAME_INTERVAL, 1);
+                jobs.add(still);
+            }
+        }
+        new ClockFrameExporter(0).exportAll(jobs);
+    }
+
+    private static void configure(ClockExportJob job, int theme, int size) {
+        job.setColors(THEME_COLORS[theme][0], THEME_COLORS[theme][1], THEME_COLORS[theme][2]);
+        //与默认的800px、14sp在xxhdpi上的比例相同
+        job.setTextSize(size * 42f / 800);
+    }
+}
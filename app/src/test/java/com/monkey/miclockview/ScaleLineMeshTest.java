@@ -0,0 +1,61 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 校验预计算的刻度线端点与原先 drawLine + rotate(1.8f) 循环画出的位置一致
+ */
+public class ScaleLineMeshTest {
+
+    private static final float CENTER_X = 400;
+    private static final float CENTER_Y = 400;
+    private static final float START_Y = 101.5f;
+    private static final float STOP_Y = 139.9f;
+
+    @Test
+    public void matchesRotateLoop() {
+        float[] pts = ScaleLineMesh.build(CENTER_X, CENTER_Y, START_Y, STOP_Y, 200, null);
+        assertEquals(800, pts.length);
+        //模拟原先的循环：每画一根刻度线，画布绕中心旋转1.8度
+        AffineTransform canvas = new AffineTransform();
+        Point2D start = new Point2D.Float();
+        Point2D stop = new Point2D.Float();
+        for (int i = 0; i < 200; i++) {
+            canvas.transform(new Point2D.Float(CENTER_X, START_Y), start);
+            canvas.transform(new Point2D.Float(CENTER_X, STOP_Y), stop);
+            assertEquals("startX " + i, start.getX(), pts[i * 4], 0.01);
+            assertEquals("startY " + i, start.getY(), pts[i * 4 + 1], 0.01);
+            assertEquals("stopX " + i, stop.getX(), pts[i * 4 + 2], 0.01);
+            assertEquals("stopY " + i, stop.getY(), pts[i * 4 + 3], 0.01);
+            canvas.rotate(Math.toRadians(1.8f), CENTER_X, CENTER_Y);
+        }
+    }
+
+    @Test
+    public void customCountIsEvenlySpaced() {
+        float[] pts = ScaleLineMesh.build(CENTER_X, CENTER_Y, START_Y, STOP_Y, 4, null);
+        //十二点、三点、六点、九点
+        float r = CENTER_Y - START_Y;
+        assertEquals(CENTER_X, pts[0], 1e-3f);
+        assertEquals(START_Y, pts[1], 1e-3f);
+        assertEquals(CENTER_X + r, pts[4], 1e-3f);
+        assertEquals(CENTER_Y, pts[5], 1e-3f);
+        assertEquals(CENTER_X, pts[8], 1e-3f);
+        assertEquals(CENTER_Y + r, pts[9], 1e-3f);
+        assertEquals(CENTER_X - r, pts[12], 1e-3f);
+        assertEquals(CENTER_Y, pts[13], 1e-3f);
+    }
+
+    @Test
+    public void reusesLargeEnoughArray() {
+        float[] out = new float[800];
+        assertSame(out, ScaleLineMesh.build(CENTER_X, CENTER_Y, START_Y, STOP_Y, 120, out));
+        assertEquals(804, ScaleLineMesh.build(CENTER_X, CENTER_Y, START_Y, STOP_Y, 201, out).length);
+    }
+}
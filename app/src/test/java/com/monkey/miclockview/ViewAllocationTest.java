@@ -0,0 +1,133 @@
+package com.monkey.miclockview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 在Robolectric的原生图形下向MiClockView发送按下、移动、松手事件并逐帧画到Bitmap上，
+ * 整条 触摸 → 复原 → 绘制 的路径都不应该分配对象
+ * {@link AllocationTest} 只覆盖不依赖Android框架的部分，这里覆盖View本身
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ViewAllocationTest {
+
+    private static final int SIZE = 400;
+    /* 每次手势中移动事件的个数 */
+    private static final int MOVES = 8;
+    /* 松手后绘制的复原帧数 */
+    private static final int RELEASE_FRAMES = 30;
+    /* 预热的手势次数，与统计的手势次数分开 */
+    private static final int WARM_UP_GESTURES = 300;
+    private static final int GESTURES = 100;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private long mThreadId;
+    private Canvas mCanvas;
+    private MotionEvent mDown;
+    private final MotionEvent[] mMoves = new MotionEvent[MOVES];
+    private MotionEvent mUp;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+        mCanvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        //事件提前创建好反复发送，统计的只是View处理事件和绘制的分配
+        mDown = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, SIZE / 2, SIZE / 2, 0);
+        for (int i = 0; i < MOVES; i++) {
+            mMoves[i] = MotionEvent.obtain(0, (i + 1) * 16, MotionEvent.ACTION_MOVE,
+                    SIZE / 2 + i * 20, SIZE / 2 - i * 10, 0);
+        }
+        mUp = MotionEvent.obtain(0, (MOVES + 1) * 16, MotionEvent.ACTION_UP,
+                SIZE / 2 + MOVES * 20, SIZE / 2 - MOVES * 10, 0);
+    }
+
+    @After
+    public void tearDown() {
+        mDown.recycle();
+        for (MotionEvent move : mMoves) {
+            move.recycle();
+        }
+        mUp.recycle();
+    }
+
+    @Test
+    public void springReleaseDoesNotAllocate() {
+        assertGesturesDoNotAllocate(newView());
+    }
+
+    @Test
+    public void shakeReleaseDoesNotAllocate() {
+        MiClockView view = newView();
+        view.setReleaseMode(MiClockView.RELEASE_SHAKE);
+        assertGesturesDoNotAllocate(view);
+    }
+
+    private MiClockView newView() {
+        Context context = RuntimeEnvironment.getApplication();
+        MiClockView view = new MiClockView(context);
+        view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+        return view;
+    }
+
+    /**
+     * 单独预热若干次手势，让几何布局、图层缓存和JIT都就绪，再统计若干次手势分配的字节数
+     */
+    private void assertGesturesDoNotAllocate(MiClockView view) {
+        for (int i = 0; i < WARM_UP_GESTURES; i++) {
+            gesture(view);
+        }
+        long overhead = measure(null, 0);
+        long allocated = measure(view, GESTURES) - overhead;
+        assertEquals("bytes allocated", 0, Math.max(0, allocated));
+    }
+
+    private long measure(MiClockView view, int gestures) {
+        long before = mThreadBean.getThreadAllocatedBytes(mThreadId);
+        for (int i = 0; i < gestures; i++) {
+            gesture(view);
+        }
+        return mThreadBean.getThreadAllocatedBytes(mThreadId) - before;
+    }
+
+    /**
+     * 按下、移动、松手，每个事件后画一帧，松手后再画若干帧复原
+     */
+    private void gesture(MiClockView view) {
+        view.onTouchEvent(mDown);
+        view.draw(mCanvas);
+        for (MotionEvent move : mMoves) {
+            view.onTouchEvent(move);
+            view.draw(mCanvas);
+        }
+        view.onTouchEvent(mUp);
+        for (int i = 0; i < RELEASE_FRAMES; i++) {
+            view.draw(mCanvas);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.monkey.miclockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 校验动态壁纸在不可见、灭屏和桌面滑动时的刷新策略
+ */
+public class WallpaperFramePolicyTest {
+
+    @Test
+    public void stopsWhenInvisible() {
+        WallpaperFramePolicy policy = new WallpaperFramePolicy(FrameScheduler.MODE_SMOOTH, 60);
+        assertFalse(policy.shouldRender());
+        policy.setVisible(true);
+        assertTrue(policy.shouldRender());
+        policy.setVisible(false);
+        assertFalse(policy.shouldRender());
+    }
+
+    @Test
+    public void minuteModeWhenScreenOff() {
+        WallpaperFramePolicy policy = new WallpaperFramePolicy(FrameScheduler.MODE_STEPPED, 0);
+        assertEquals(FrameScheduler.MODE_STEPPED, policy.getTickMode());
+        policy.setScreenOn(false);
+        assertEquals(FrameScheduler.MODE_MINUTE, policy.getTickMode());
+        policy.setScreenOn(true);
+        assertEquals(FrameScheduler.MODE_STEPPED, policy.getTickMode());
+    }
+
+    @Test
+    public void throttlesWhileScrolling() {
+        WallpaperFramePolicy policy = new WallpaperFramePolicy(FrameScheduler.MODE_SMOOTH, 60);
+        assertFalse(policy.isScrolling(0));
+        assertEquals(60, policy.getMaxFps(0));
+        policy.onScrolled(1000);
+        assertTrue(policy.isScrolling(1000));
+        assertEquals(WallpaperFramePolicy.SCROLLING_MAX_FPS, policy.getMaxFps(1000));
+        assertEquals(WallpaperFramePolicy.SCROLLING_MAX_FPS,
+                policy.getMaxFps(1000 + WallpaperFramePolicy.SCROLL_IDLE_MILLIS - 1));
+        assertEquals(60, policy.getMaxFps(1000 + WallpaperFramePolicy.SCROLL_IDLE_MILLIS));
+    }
+
+    @Test
+    public void scrollingNeverRaisesFps() {
+        WallpaperFramePolicy unlimited = new WallpaperFramePolicy(FrameScheduler.MODE_SMOOTH, 0);
+        unlimited.onScrolled(0);
+        assertEquals(WallpaperFramePolicy.SCROLLING_MAX_FPS, unlimited.getMaxFps(0));
+        WallpaperFramePolicy low = new WallpaperFramePolicy(FrameScheduler.MODE_SMOOTH, 20);
+        low.onScrolled(0);
+        assertEquals(20, low.getMaxFps(0));
+    }
+
+    @Test
+    public void offsetToPercent() {
+        assertEquals(-1, WallpaperFramePolicy.offsetToPercent(0, 0.25f), 0);
+        assertEquals(0, WallpaperFramePolicy.offsetToPercent(0.5f, 0.25f), 0);
+        assertEquals(1, WallpaperFramePolicy.offsetToPercent(1, 0.25f), 0);
+        assertEquals(0.5f, WallpaperFramePolicy.offsetToPercent(0.75f, 0.25f), 1e-6);
+        //只有一屏或者桌面不支持偏移时不倾斜
+        assertEquals(0, WallpaperFramePolicy.offsetToPercent(0, 0), 0);
+        assertEquals(0, WallpaperFramePolicy.offsetToPercent(0, 1), 0);
+    }
+}